@@ -3,4 +3,5 @@
 # Lancement du SGBD avec 2Go de RAM pour le BigData
 # Usage attendu : ./app.sh <FichierConfig> < <FichierScenario>
 # Exemple : ./app.sh config.txt < commande_scenario.txt
+# Avec bm_memory: offheap, le pool est hors du tas : sa taille est bornée par -XX:MaxDirectMemorySize (par défaut = -Xmx)
 java -Xmx2g -cp bin sgbd.Main "$@"
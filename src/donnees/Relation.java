@@ -3,11 +3,14 @@ package donnees;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import espaceDisque.BufferManager;
+import espaceDisque.BufferRing;
 import espaceDisque.DBConfig;
 import espaceDisque.DiskManager;
+import espaceDisque.PageHandle;
 import espaceDisque.PageId;
 
 
@@ -20,9 +23,18 @@ public class Relation implements Serializable{
     private transient BufferManager bufferManager;
     private PageId headerPageId; 
     private DBConfig dbConfig;
+    // Mode "un fichier par relation" : fichier DataN.bin propre à la table
+    private boolean hasOwnFile;
+    private int ownFileIdx;
     private static final long serialVersionUID = 1L;
-    // 2 PageId (Next + Prev) * 2 int * 4 octets = 16 octets
-    private static final int HEADER_PAGE_SIZE = 16;
+    // En-tête d'une page de données : 16 octets réservés (anciens liens Prev/Next, inutilisés depuis le répertoire)
+    static final int HEADER_PAGE_SIZE = 16;
+    // Répertoire des pages de données (Header Page + pages de débordement)
+    private static final int DIR_MAGIC = 0x44495231;  // "DIR1" : distingue le répertoire de l'ancien format chaîné
+    private static final int DIR_HEADER_SIZE = 20;    // Magic + nb d'entrées + page suivante (8o) + indice libre
+    private static final int DIR_ENTRY_SIZE = 12;     // FileIdx + PageIdx + nb de slots libres
+    // Pages du répertoire dans l'ordre (Header Page en premier), reconstruit au besoin après désérialisation
+    private transient List<PageId> directoryPages;
     /**
      * Constructeur
      * @param name Nom de la table
@@ -146,6 +158,38 @@ public class Relation implements Serializable{
     public List<ColInfo> getCols() { 
     	return cols; 
     }
+
+    public String getName() {
+        return name;
+    }
+
+    // Accès pour le RelationScanner (même package)
+    BufferManager getBufferManager() {
+        return bufferManager;
+    }
+
+    /**
+     * Attribue un fichier de données propre à la relation (à appeler avant createHeaderPage).
+     * @param fileIdx Index du fichier DataN.bin réservé par le DiskManager.
+     */
+    public void setOwnFile(int fileIdx) {
+        this.hasOwnFile = true;
+        this.ownFileIdx = fileIdx;
+    }
+
+    /**
+     * @return L'index du fichier propre à la relation, ou -1 si elle partage les fichiers communs.
+     */
+    public int getOwnFile() {
+        return hasOwnFile ? ownFileIdx : -1;
+    }
+
+    /**
+     * Alloue une page pour la relation : dans son propre fichier s'il existe, sinon dans l'espace commun.
+     */
+    private PageId allocPage() {
+        return hasOwnFile ? diskManager.AllocPage(ownFileIdx) : diskManager.AllocPage();
+    }
     
     // --- TP5 : Gestion de la Taille et des Slots ---
 
@@ -153,7 +197,7 @@ public class Relation implements Serializable{
      * Calcule la taille MAXIMALE d'un record en octets (pour réserver l'espace).
      * @return Taille en octets.
      */
-    private int getRecordMaxSize() {
+    int getRecordMaxSize() {
         int size = 0;
         for (ColInfo col : cols) {
             switch (col.type) {
@@ -176,11 +220,11 @@ public class Relation implements Serializable{
 
     /**
      * Calcule combien de slots (records) peuvent tenir dans une page.
-     * Formule : SlotCount = PageSize / (RecordMaxSize + 1 octet de bytemap)
+     * Formule : SlotCount = (PageSize - HEADER_PAGE_SIZE) / (RecordMaxSize + 1 octet de bytemap)
      * @return Nombre de slots par page.
      */
     public int getSlotCount() {
-        // Formule : (PageSize - 16 octets de liens) / (RecordSize + 1 octet bytemap)
+        // Formule : (PageSize - 16 octets réservés en tête de page) / (RecordSize + 1 octet bytemap)
         return (dbConfig.pagesize - HEADER_PAGE_SIZE) / (getRecordMaxSize() + 1);
     }
     
@@ -193,49 +237,55 @@ public class Relation implements Serializable{
      * @return Le RecordId si succès, ou null si la page est pleine.
      */
     public RecordId writeRecordToDataPage(Record record, PageId pageId) {
-        // 1. On récupère la page via le BufferManager
-        // Attention : on récupère un byte[] qu'on doit wrapper dans un ByteBuffer
-        byte[] rawPage = bufferManager.GetPage(pageId);
-        ByteBuffer pageBuffer = ByteBuffer.wrap(rawPage);
-
-        // 2. Calculs préliminaires
-        int maxSlot = getSlotCount();
-        int recordSize = getRecordMaxSize();
-        int slotTrouve = -1;
-
-        // 3. Parcours de la Bytemap (les 'maxSlot' premiers octets DISPONIBLES)
-        // CORRECTION IMPORTANTE : La Bytemap commence APRÈS le Header (16 octets)
-        for (int i = 0; i < maxSlot; i++) {
-            // On vérifie l'octet à la position (HEADER + i)
-            if (pageBuffer.get(HEADER_PAGE_SIZE + i) == 0) { // 0 = Libre
-                slotTrouve = i;
-                break;
+        return writeRecordToDataPage(record, pageId, null);
+    }
+
+    /**
+     * Variante de writeRecordToDataPage qui charge la page via un anneau (import en masse).
+     */
+    public RecordId writeRecordToDataPage(Record record, PageId pageId, BufferRing ring) {
+        // 1. On épingle la page via le BufferManager (libérée automatiquement à la fin du bloc)
+        try (PageHandle page = bufferManager.PinPage(pageId, ring, name)) {
+            ByteBuffer pageBuffer = page.getBuffer();
+
+            // 2. Calculs préliminaires
+            int maxSlot = getSlotCount();
+            int recordSize = getRecordMaxSize();
+            int slotTrouve = -1;
+
+            // 3. Parcours de la Bytemap (les 'maxSlot' premiers octets DISPONIBLES)
+            // CORRECTION IMPORTANTE : La Bytemap commence APRÈS le Header (16 octets)
+            for (int i = 0; i < maxSlot; i++) {
+                // On vérifie l'octet à la position (HEADER + i)
+                if (pageBuffer.get(HEADER_PAGE_SIZE + i) == 0) { // 0 = Libre
+                    slotTrouve = i;
+                    break;
+                }
             }
-        }
 
-        if (slotTrouve == -1) {
-            // Page pleine ! On libère la page sans la modifier (dirty=false)
-            bufferManager.FreePage(pageId, false);
-            return null; 
-        }
+            if (slotTrouve == -1) {
+                // Page pleine ! La page est libérée sans modification (dirty=false)
+                return null;
+            }
 
-        // 4. Écriture
-        // A. Mise à jour de la Bytemap
-        // On se place après le header, à l'index du slot trouvé
-        pageBuffer.position(HEADER_PAGE_SIZE + slotTrouve);
-        pageBuffer.put((byte) 1); // On marque occupé
+            // 4. Écriture
+            // A. Mise à jour de la Bytemap
+            // On se place après le header, à l'index du slot trouvé
+            pageBuffer.position(HEADER_PAGE_SIZE + slotTrouve);
+            pageBuffer.put((byte) 1); // On marque occupé
 
-        // B. Calcul de la position du slot pour les données
-        // Offset = Taille Header + Taille Bytemap + (Index * Taille Record)
-        int offset = HEADER_PAGE_SIZE + maxSlot + (slotTrouve * recordSize);
-        
-        // C. Écriture des données (on utilise ta méthode du TP4 !)
-        writeRecordToBuffer(record, pageBuffer, offset);
+            // B. Calcul de la position du slot pour les données
+            // Offset = Taille Header + Taille Bytemap + (Index * Taille Record)
+            int offset = HEADER_PAGE_SIZE + maxSlot + (slotTrouve * recordSize);
+
+            // C. Écriture des données (on utilise ta méthode du TP4 !)
+            writeRecordToBuffer(record, pageBuffer, offset);
 
-        // 5. Libération de la page (Dirty = true car on a écrit !)
-        bufferManager.FreePage(pageId, true);
+            // 5. La page sera libérée Dirty (on a écrit !)
+            page.markDirty();
 
-        return new RecordId(pageId, slotTrouve);
+            return new RecordId(pageId, slotTrouve);
+        }
     }
 
     /**
@@ -244,155 +294,370 @@ public class Relation implements Serializable{
      * @return Une liste de records.
      */
     public List<Record> getRecordsInDataPage(PageId pageId) {
+        return getRecordsInDataPage(pageId, null);
+    }
+
+    /**
+     * Variante de getRecordsInDataPage qui charge la page via un anneau (parcours complet).
+     */
+    public List<Record> getRecordsInDataPage(PageId pageId, BufferRing ring) {
         List<Record> resultList = new ArrayList<>();
-        
-        byte[] rawPage = bufferManager.GetPage(pageId);
-        ByteBuffer pageBuffer = ByteBuffer.wrap(rawPage);
-
-        int maxSlot = getSlotCount();
-        int recordSize = getRecordMaxSize();
-
-        // On parcourt la bytemap
-        for (int i = 0; i < maxSlot; i++) {
-            // CORRECTION IMPORTANTE : On lit la Bytemap avec le décalage du Header
-            // Si l'octet vaut 1, il y a un record
-            if (pageBuffer.get(HEADER_PAGE_SIZE + i) == 1) {
-                // Calcul de l'offset où se trouve ce record
-                int offset = HEADER_PAGE_SIZE + maxSlot + (i * recordSize);
-                
-                Record rec = new Record();
-                readFromBuffer(rec, pageBuffer, offset); // Méthode du TP4
-                resultList.add(rec);
+
+        // Lecture seule : la page est libérée à la fin du bloc (pas de modif -> dirty=false)
+        try (PageHandle page = bufferManager.PinPage(pageId, ring, name)) {
+            ByteBuffer pageBuffer = page.getBuffer();
+
+            int maxSlot = getSlotCount();
+            int recordSize = getRecordMaxSize();
+
+            // On parcourt la bytemap
+            for (int i = 0; i < maxSlot; i++) {
+                // CORRECTION IMPORTANTE : On lit la Bytemap avec le décalage du Header
+                // Si l'octet vaut 1, il y a un record
+                if (pageBuffer.get(HEADER_PAGE_SIZE + i) == 1) {
+                    // Calcul de l'offset où se trouve ce record
+                    int offset = HEADER_PAGE_SIZE + maxSlot + (i * recordSize);
+
+                    Record rec = new Record();
+                    readFromBuffer(rec, pageBuffer, offset); // Méthode du TP4
+                    resultList.add(rec);
+                }
             }
         }
 
-        // Lecture finie, on libère la page (pas de modif -> dirty=false)
-        bufferManager.FreePage(pageId, false);
-        
         return resultList;
     }
  // --- TP5 : GESTION DU HEAP FILE (Multi-Pages) ---
+ //
+ // La Header Page est le répertoire des pages de données : une entrée (PageId + nombre de slots libres)
+ // par page, dans l'ordre d'ajout. Quand elle est pleine, le répertoire continue dans des pages de
+ // débordement chaînées. Lister les pages ne lit donc que le répertoire, pas les pages de données.
+ // Format d'une page du répertoire :
+ //   [0-3] DIR_MAGIC | [4-7] nb d'entrées de la page | [8-15] page suivante du répertoire (-1 = aucune)
+ //   [16-19] (Header Page seulement) indice de la première entrée qui peut avoir un slot libre
+ //   [20...] entrées de DIR_ENTRY_SIZE octets : FileIdx, PageIdx, slots libres
+
+    /**
+     * Entrée du répertoire : indice (global), page de données et nombre de slots libres.
+     */
+    private static final class DirectoryEntry {
+        final int index;
+        final PageId pageId;
+        final int freeSlots;
+
+        DirectoryEntry(int index, PageId pageId, int freeSlots) {
+            this.index = index;
+            this.pageId = pageId;
+            this.freeSlots = freeSlots;
+        }
+    }
 
     /**
      * Crée la Header Page (appelé une seule fois à la création de la table).
-     * Elle initialise les pointeurs à "null" (FileIdx = -1, PageIdx = -1).
+     * Elle contient un répertoire vide.
      */
     public void createHeaderPage() {
-        this.headerPageId = diskManager.AllocPage();
+        this.headerPageId = allocPage();
+        this.directoryPages = null;
         
         byte[] data = new byte[dbConfig.pagesize];
-        ByteBuffer buffer = ByteBuffer.wrap(data);
-        
-        // On écrit -1 partout pour dire "Aucune page pour l'instant"
-        // Structure : [FreePageId (8o)] [FullPageId (8o)]
-        buffer.putInt(-1); buffer.putInt(-1); // FreePageId
-        buffer.putInt(-1); buffer.putInt(-1); // FullPageId
+        initDirectoryPage(ByteBuffer.wrap(data));
         
         diskManager.WritePage(this.headerPageId, data);
         // On libère la page (on n'utilise pas le BufferManager ici pour simplifier l'init)
     }
 
+    private static void initDirectoryPage(ByteBuffer buff) {
+        buff.putInt(0, DIR_MAGIC);
+        buff.putInt(4, 0);      // Aucune entrée
+        buff.putInt(8, -1);     // Pas de page suivante
+        buff.putInt(12, -1);
+        buff.putInt(16, 0);     // Indice libre
+    }
+
+    /**
+     * @return Le nombre d'entrées que peut contenir une page du répertoire.
+     */
+    private int getDirectoryCapacity() {
+        return (dbConfig.pagesize - DIR_HEADER_SIZE) / DIR_ENTRY_SIZE;
+    }
+
+    /**
+     * @return Les pages du répertoire dans l'ordre, la Header Page en premier (liste en lecture seule).
+     */
+    List<PageId> getDirectoryPageIds() {
+        if (directoryPages == null) {
+            List<PageId> pages = new ArrayList<>();
+            PageId dirId = this.headerPageId;
+            while (dirId != null) {
+                pages.add(dirId);
+                try (PageHandle dir = bufferManager.PinPage(dirId, null, name)) {
+                    dirId = nextDirectoryPage(dir.getBuffer());
+                }
+            }
+            directoryPages = pages;
+        }
+        return Collections.unmodifiableList(directoryPages);
+    }
+
+    private static PageId nextDirectoryPage(ByteBuffer buff) {
+        int nextFile = buff.getInt(8);
+        return (nextFile == -1) ? null : new PageId(nextFile, buff.getInt(12));
+    }
+
+    /**
+     * @return Les pages de débordement du répertoire (à libérer avec la relation).
+     */
+    public List<PageId> getDirectoryOverflowPages() {
+        List<PageId> pages = getDirectoryPageIds();
+        return new ArrayList<>(pages.subList(1, pages.size()));
+    }
+
     /**
      * Ajoute une NOUVELLE page de données à la relation.
-     * Cette page sera ajoutée en tête de la liste des pages libres ("Free List").
+     * Elle est enregistrée à la fin du répertoire, avec tous ses slots libres.
      */
     public PageId addDataPage() {
-        PageId newPageId = diskManager.AllocPage();
-        
-        // 1. Lire la Header Page pour savoir qui était l'ancienne "First Free"
-        byte[] headerData = bufferManager.GetPage(this.headerPageId);
-        ByteBuffer headerBuff = ByteBuffer.wrap(headerData);
-        
-        // On lit l'ancien FreePageId (pos 0)
-        int oldFreeFile = headerBuff.getInt(0);
-        int oldFreePage = headerBuff.getInt(4);
-        
-        // 2. Préparer la nouvelle page
-        // Sa "Next Page" sera l'ancienne Free Page
-        byte[] newPageData = bufferManager.GetPage(newPageId);
-        ByteBuffer newPageBuff = ByteBuffer.wrap(newPageData);
-        
-        newPageBuff.putInt(0, -1);         // Prev Page = null (car elle devient la 1ère)
-        newPageBuff.putInt(4, -1);
-        newPageBuff.putInt(8, oldFreeFile); // Next Page = Ancienne 1ère
-        newPageBuff.putInt(12, oldFreePage);
-        
-        bufferManager.FreePage(newPageId, true); // On sauve la nouvelle page
-        
-        // 3. Si l'ancienne page existait, il faut mettre à jour son "Prev Pointer"
-        if (oldFreeFile != -1) {
-            PageId oldPageId = new PageId(oldFreeFile, oldFreePage);
-            byte[] oldPageData = bufferManager.GetPage(oldPageId);
-            ByteBuffer oldBuff = ByteBuffer.wrap(oldPageData);
-            
-            // Le Prev Pointer est aux octets 0 et 4
-            oldBuff.putInt(0, newPageId.FileIdx);
-            oldBuff.putInt(4, newPageId.PageIdx);
-            
-            bufferManager.FreePage(oldPageId, true);
+        return addDataPage(null);
+    }
+
+    /**
+     * Variante de addDataPage : la nouvelle page passe par l'anneau donné.
+     */
+    private PageId addDataPage(BufferRing ring) {
+        PageId newPageId = allocPage();
+        int slotCount = getSlotCount();
+        
+        // 1. Préparer la nouvelle page : en-tête et bytemap à zéro (la page peut être recyclée)
+        try (PageHandle newPage = bufferManager.PinPage(newPageId, ring, name)) {
+            ByteBuffer newPageBuff = newPage.getBuffer();
+            for (int i = 0; i < HEADER_PAGE_SIZE + slotCount; i++) {
+                newPageBuff.put(i, (byte) 0);
+            }
+            newPage.markDirty(); // On sauve la nouvelle page
         }
 
-        // 4. Mettre à jour la Header Page pour dire que la nouvelle est la 1ère
-        headerBuff.putInt(0, newPageId.FileIdx);
-        headerBuff.putInt(4, newPageId.PageIdx);
-        
-        bufferManager.FreePage(this.headerPageId, true);
-        
+        // 2. L'inscrire dans le répertoire
+        appendDirectoryEntry(newPageId, slotCount);
         return newPageId;
     }
+
+    /**
+     * Ajoute une entrée à la fin du répertoire, en chaînant une page de débordement si la dernière est pleine.
+     */
+    private void appendDirectoryEntry(PageId pageId, int freeSlots) {
+        List<PageId> dirPages = getDirectoryPageIds();
+        PageId lastId = dirPages.get(dirPages.size() - 1);
+
+        try (PageHandle last = bufferManager.PinPage(lastId, null, name)) {
+            ByteBuffer lastBuff = last.getBuffer();
+            int count = lastBuff.getInt(4);
+            if (count < getDirectoryCapacity()) {
+                writeDirectoryEntry(lastBuff, count, pageId, freeSlots);
+                lastBuff.putInt(4, count + 1);
+                last.markDirty();
+                return;
+            }
+
+            // Dernière page du répertoire pleine : nouvelle page de débordement
+            PageId overflowId = allocPage();
+            try (PageHandle overflow = bufferManager.PinPage(overflowId, null, name)) {
+                ByteBuffer overflowBuff = overflow.getBuffer();
+                initDirectoryPage(overflowBuff);
+                writeDirectoryEntry(overflowBuff, 0, pageId, freeSlots);
+                overflowBuff.putInt(4, 1);
+                overflow.markDirty();
+            }
+            lastBuff.putInt(8, overflowId.FileIdx);
+            lastBuff.putInt(12, overflowId.PageIdx);
+            last.markDirty();
+            directoryPages.add(overflowId);
+        }
+    }
+
+    private static void writeDirectoryEntry(ByteBuffer buff, int i, PageId pageId, int freeSlots) {
+        int offset = DIR_HEADER_SIZE + (i * DIR_ENTRY_SIZE);
+        buff.putInt(offset, pageId.FileIdx);
+        buff.putInt(offset + 4, pageId.PageIdx);
+        buff.putInt(offset + 8, freeSlots);
+    }
+
+    /**
+     * Cherche la première page qui a un slot libre, à partir de l'indice mémorisé dans la Header Page
+     * (les pages d'avant sont pleines). L'indice est avancé jusqu'à la page trouvée.
+     * @return L'entrée trouvée, ou null si toutes les pages sont pleines.
+     */
+    private DirectoryEntry findFreeEntry() {
+        int hint;
+        try (PageHandle header = bufferManager.PinPage(this.headerPageId, null, name)) {
+            hint = header.getBuffer().getInt(16);
+        }
+
+        List<PageId> dirPages = getDirectoryPageIds();
+        int capacity = getDirectoryCapacity();
+        DirectoryEntry found = null;
+        int end = hint;
+        for (int d = hint / capacity; d < dirPages.size() && found == null; d++) {
+            try (PageHandle dir = bufferManager.PinPage(dirPages.get(d), null, name)) {
+                ByteBuffer buff = dir.getBuffer();
+                int count = buff.getInt(4);
+                for (int i = Math.max(0, hint - (d * capacity)); i < count; i++) {
+                    int offset = DIR_HEADER_SIZE + (i * DIR_ENTRY_SIZE);
+                    int freeSlots = buff.getInt(offset + 8);
+                    if (freeSlots > 0) {
+                        found = new DirectoryEntry(d * capacity + i,
+                                new PageId(buff.getInt(offset), buff.getInt(offset + 4)), freeSlots);
+                        break;
+                    }
+                }
+                end = d * capacity + count;
+            }
+        }
+
+        int newHint = (found != null) ? found.index : end;
+        if (newHint != hint) {
+            setFreeHint(newHint);
+        }
+        return found;
+    }
+
+    private void setFreeHint(int entryIdx) {
+        try (PageHandle header = bufferManager.PinPage(this.headerPageId, null, name)) {
+            header.getBuffer().putInt(16, entryIdx);
+            header.markDirty();
+        }
+    }
+
+    /**
+     * Ajoute 'delta' (positif après une suppression, négatif après une insertion) au nombre de slots libres
+     * d'une entrée du répertoire.
+     */
+    private void updateFreeSlots(int entryIdx, int delta) {
+        int capacity = getDirectoryCapacity();
+        int offset = DIR_HEADER_SIZE + ((entryIdx % capacity) * DIR_ENTRY_SIZE) + 8;
+        try (PageHandle dir = bufferManager.PinPage(getDirectoryPageIds().get(entryIdx / capacity), null, name)) {
+            ByteBuffer buff = dir.getBuffer();
+            buff.putInt(offset, Math.max(0, buff.getInt(offset) + delta));
+            dir.markDirty();
+        }
+
+        // Un slot libéré avant l'indice libre : l'indice recule pour que les insertions le retrouvent
+        if (delta > 0) {
+            try (PageHandle header = bufferManager.PinPage(this.headerPageId, null, name)) {
+                if (entryIdx < header.getBuffer().getInt(16)) {
+                    header.getBuffer().putInt(16, entryIdx);
+                    header.markDirty();
+                }
+            }
+        }
+    }
     
  // ==========================================
     // MÉTHODES TP5 : LECTURE (SCAN)
     // ==========================================
 
     /**
-     * Récupère la liste de TOUTES les pages de données (Libres et Pleines).
+     * Récupère la liste de TOUTES les pages de données, dans l'ordre du répertoire.
+     * Seules les pages du répertoire sont lues.
      */
     public List<PageId> getDataPages() {
         List<PageId> pageIds = new ArrayList<>();
-        
-        // 1. On lit la Header Page
-        byte[] headerData = bufferManager.GetPage(this.headerPageId);
-        ByteBuffer headerBuff = ByteBuffer.wrap(headerData);
-        
-        // On récupère les têtes de liste
-        int freeFile = headerBuff.getInt(0);
-        int freePage = headerBuff.getInt(4);
-        int fullFile = headerBuff.getInt(8);
-        int fullPage = headerBuff.getInt(12);
-        
-        bufferManager.FreePage(this.headerPageId, false);
-        
-        // 2. On parcourt la liste des pages LIBRES
-        traverseList(new PageId(freeFile, freePage), pageIds);
-        
-        // 3. On parcourt la liste des pages PLEINES
-        traverseList(new PageId(fullFile, fullPage), pageIds);
-        
+        for (PageId dirId : getDirectoryPageIds()) {
+            readDirectoryPage(dirId, pageIds);
+        }
         return pageIds;
     }
 
     /**
-     * Helper pour parcourir une liste chaînée de pages.
+     * Ajoute à 'result' les pages de données listées dans une page du répertoire.
+     */
+    void readDirectoryPage(PageId dirId, List<PageId> result) {
+        try (PageHandle dir = bufferManager.PinPage(dirId, null, name)) {
+            ByteBuffer buff = dir.getBuffer();
+            int count = buff.getInt(4);
+            for (int i = 0; i < count; i++) {
+                int offset = DIR_HEADER_SIZE + (i * DIR_ENTRY_SIZE);
+                result.add(new PageId(buff.getInt(offset), buff.getInt(offset + 4)));
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre total de slots libres d'après le répertoire.
+     */
+    public int getFreeSlotCount() {
+        int total = 0;
+        for (PageId dirId : getDirectoryPageIds()) {
+            try (PageHandle dir = bufferManager.PinPage(dirId, null, name)) {
+                ByteBuffer buff = dir.getBuffer();
+                int count = buff.getInt(4);
+                for (int i = 0; i < count; i++) {
+                    total += buff.getInt(DIR_HEADER_SIZE + (i * DIR_ENTRY_SIZE) + 8);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Convertit une Header Page de l'ancien format (têtes des listes chaînées de pages libres
+     * et pleines) en répertoire. Ne fait rien si la relation a déjà un répertoire.
+     */
+    private void upgradeHeaderPage() {
+        PageId freeHead, fullHead;
+        try (PageHandle header = bufferManager.PinPage(this.headerPageId, null, name)) {
+            ByteBuffer headerBuff = header.getBuffer();
+            if (headerBuff.getInt(0) == DIR_MAGIC) {
+                return;
+            }
+            freeHead = new PageId(headerBuff.getInt(0), headerBuff.getInt(4));
+            fullHead = new PageId(headerBuff.getInt(8), headerBuff.getInt(12));
+        }
+
+        // 1. On suit une dernière fois le chaînage (le "Next" est aux octets 8 et 12 des pages)
+        List<PageId> pages = new ArrayList<>();
+        traverseList(freeHead, pages);
+        traverseList(fullHead, pages);
+
+        // 2. On réécrit la Header Page en répertoire, puis on y inscrit les pages
+        try (PageHandle header = bufferManager.PinPage(this.headerPageId, null, name)) {
+            initDirectoryPage(header.getBuffer());
+            header.markDirty();
+        }
+        this.directoryPages = null;
+        for (PageId pid : pages) {
+            appendDirectoryEntry(pid, countFreeSlots(pid));
+        }
+        System.out.println("[Relation] " + name + " : répertoire de " + pages.size() + " page(s) créé (ancien format chaîné).");
+    }
+
+    /**
+     * Helper pour parcourir une liste chaînée de pages (ancien format).
      */
     private void traverseList(PageId startId, List<PageId> result) {
         PageId currentId = startId;
         
         while (currentId.FileIdx != -1 && currentId.PageIdx != -1) {
             result.add(currentId);
-            
-            // Lire la page courante pour trouver la suivante
-            byte[] data = bufferManager.GetPage(currentId);
-            ByteBuffer buff = ByteBuffer.wrap(data);
-            
-            // La "Next Page" est stockée aux octets 8 et 12
-            int nextFile = buff.getInt(8);
-            int nextPage = buff.getInt(12);
-            
-            bufferManager.FreePage(currentId, false);
-            
-            currentId = new PageId(nextFile, nextPage);
+            try (PageHandle page = bufferManager.PinPage(currentId, null, name)) {
+                ByteBuffer buff = page.getBuffer();
+                currentId = new PageId(buff.getInt(8), buff.getInt(12));
+            }
+        }
+    }
+
+    private int countFreeSlots(PageId pageId) {
+        int free = 0;
+        try (PageHandle page = bufferManager.PinPage(pageId, null, name)) {
+            ByteBuffer buff = page.getBuffer();
+            int maxSlot = getSlotCount();
+            for (int i = 0; i < maxSlot; i++) {
+                if (buff.get(HEADER_PAGE_SIZE + i) == 0) {
+                    free++;
+                }
+            }
         }
+        return free;
     }
 
     /**
@@ -400,14 +665,37 @@ public class Relation implements Serializable{
      */
     public List<Record> GetAllRecords() {
         List<Record> allRecords = new ArrayList<>();
-        List<PageId> allPages = getDataPages();
-        
-        for (PageId pid : allPages) {
-            allRecords.addAll(getRecordsInDataPage(pid));
+        // Parcours complet : les pages passent par un anneau pour ne pas vider le pool partagé
+        BufferRing ring = bufferManager.NewRing();
+        try {
+            List<PageId> allPages = getDataPages();
+            int depth = bufferManager.getReadAheadDepth(ring);
+
+            for (int p = 0; p < allPages.size(); p++) {
+                readAhead(allPages, p, depth, ring); // Les pages suivantes arrivent pendant qu'on décode celle-ci
+                allRecords.addAll(getRecordsInDataPage(allPages.get(p), ring));
+            }
+        } finally {
+            bufferManager.ReleaseRing(ring);
         }
         return allRecords;
     }
 
+    /**
+     * Lecture anticipée d'un parcours de pages : à la première page on demande les 'depth' suivantes,
+     * puis une de plus à chaque page, pour toujours garder 'depth' pages d'avance.
+     */
+    void readAhead(List<PageId> pages, int current, int depth, BufferRing ring) {
+        if (depth <= 0) {
+            return;
+        }
+        int from = (current == 0) ? 1 : current + depth;
+        int to = Math.min(pages.size(), current + depth + 1);
+        if (from < to) {
+            bufferManager.Prefetch(pages.subList(from, to), ring, name);
+        }
+    }
+
     // ==========================================
     // MÉTHODES TP5 : INSERTION INTELLIGENTE
     // ==========================================
@@ -416,100 +704,47 @@ public class Relation implements Serializable{
      * Insère un record en gérant automatiquement la recherche de place.
      */
     public RecordId InsertRecord(Record record) {
+        return InsertRecord(record, null);
+    }
+
+    /**
+     * Variante d'InsertRecord pour les imports en masse (APPEND) : les pages de données
+     * passent par l'anneau donné, la Header Page reste dans le pool partagé.
+     */
+    public RecordId InsertRecord(Record record, BufferRing ring) {
         while (true) {
-            // 1. Lire la Header Page pour trouver la première page LIBRE
-            byte[] headerData = bufferManager.GetPage(this.headerPageId);
-            ByteBuffer headerBuff = ByteBuffer.wrap(headerData);
-            
-            int freeFile = headerBuff.getInt(0);
-            int freePage = headerBuff.getInt(4);
-            
-            bufferManager.FreePage(this.headerPageId, false);
+            // 1. Le répertoire donne la première page qui a encore un slot libre
+            DirectoryEntry entry = findFreeEntry();
             
             // 2. Si aucune page libre, on en crée une nouvelle
-            if (freeFile == -1) {
-                addDataPage(); 
+            if (entry == null) {
+                addDataPage(ring); 
                 continue; // On recommence pour utiliser cette nouvelle page
             }
             
-            PageId freePageId = new PageId(freeFile, freePage);
-            
             // 3. Tenter d'écrire
-            RecordId rid = writeRecordToDataPage(record, freePageId);
+            RecordId rid = writeRecordToDataPage(record, entry.pageId, ring);
             
             if (rid != null) {
+                updateFreeSlots(entry.index, -1);
                 return rid; // Succès
             } else {
-                // Échec : Page pleine -> On déplace et on réessaie
-                moveFirstFreePageToFullList();
+                // Compteur désynchronisé : la page est en fait pleine, on la marque comme telle et on réessaie
+                updateFreeSlots(entry.index, -entry.freeSlots);
             }
         }
     }
     
-    /**
-     * Déplace la première page de la liste "Free" vers la tête de la liste "Full".
-     */
-    private void moveFirstFreePageToFullList() {
-        // 1. Lire le Header
-        byte[] headerData = bufferManager.GetPage(this.headerPageId);
-        ByteBuffer headerBuff = ByteBuffer.wrap(headerData);
-        
-        int pFile = headerBuff.getInt(0); // Tête Free actuelle
-        int pPage = headerBuff.getInt(4);
-        int fullFile = headerBuff.getInt(8); // Tête Full actuelle
-        int fullPage = headerBuff.getInt(12);
-        
-        PageId pId = new PageId(pFile, pPage);
-        
-        // 2. Lire la page P
-        byte[] pData = bufferManager.GetPage(pId);
-        ByteBuffer pBuff = ByteBuffer.wrap(pData);
-        
-        int nextFile = pBuff.getInt(8); // Suivant de P dans Free
-        int nextPage = pBuff.getInt(12);
-        
-        // 3. Mettre à jour Header (Free -> Suivant de P)
-        headerBuff.putInt(0, nextFile);
-        headerBuff.putInt(4, nextPage);
-        
-        // Mettre à jour le Prev du suivant (s'il existe)
-        if (nextFile != -1) {
-            PageId nextId = new PageId(nextFile, nextPage);
-            byte[] nextData = bufferManager.GetPage(nextId);
-            ByteBuffer nextBuff = ByteBuffer.wrap(nextData);
-            nextBuff.putInt(0, -1);
-            nextBuff.putInt(4, -1);
-            bufferManager.FreePage(nextId, true);
-        }
-        
-        // 4. Insérer P en tête de Full
-        pBuff.putInt(8, fullFile); // P.Next = Ancien Full
-        pBuff.putInt(12, fullPage);
-        pBuff.putInt(0, -1);       // P.Prev = null
-        
-        // Mettre à jour le Prev de l'ancien Full (s'il existe)
-        if (fullFile != -1) {
-            PageId oldFullId = new PageId(fullFile, fullPage);
-            byte[] oldFullData = bufferManager.GetPage(oldFullId);
-            ByteBuffer oldFullBuff = ByteBuffer.wrap(oldFullData);
-            oldFullBuff.putInt(0, pFile);
-            oldFullBuff.putInt(4, pPage);
-            bufferManager.FreePage(oldFullId, true);
-        }
-        
-        // 5. Mettre à jour Header (Full -> P)
-        headerBuff.putInt(8, pFile);
-        headerBuff.putInt(12, pPage);
-        
-        bufferManager.FreePage(pId, true);
-        bufferManager.FreePage(this.headerPageId, true);
-    }
     /**
      * Reconnecte la relation aux managers (nécessaire après désérialisation).
      */
     public void setManagers(DiskManager dm, BufferManager bm) {
         this.diskManager = dm;
         this.bufferManager = bm;
+        this.directoryPages = null;
+        if (this.headerPageId != null) {
+            upgradeHeaderPage(); // Tables créées avant le répertoire des pages
+        }
     }
     // --- SUPPRESSION ---
 
@@ -519,46 +754,59 @@ public class Relation implements Serializable{
      */
     public int DeleteRecords(List<Condition> conditions) {
         int count = 0;
-        List<PageId> pages = getDataPages();
-        
-        for (PageId pid : pages) {
-            // 1. Lire la page
-            byte[] rawPage = bufferManager.GetPage(pid);
-            ByteBuffer pageBuffer = ByteBuffer.wrap(rawPage);
-            int maxSlot = getSlotCount();
-            int recordSize = getRecordMaxSize();
-            boolean pageModified = false;
-
-            // 2. Parcourir tous les slots
-            for (int i = 0; i < maxSlot; i++) {
-                // Si le slot est occupé (Bytemap = 1)
-                if (pageBuffer.get(HEADER_PAGE_SIZE + i) == 1) {
-                    // On lit le record pour le tester
-                    int offset = HEADER_PAGE_SIZE + maxSlot + (i * recordSize);
-                    Record rec = new Record();
-                    readFromBuffer(rec, pageBuffer, offset);
-                    
-                    // 3. Vérifier les conditions
-                    boolean match = true;
-                    if (conditions != null) {
-                        for (Condition cond : conditions) {
-                            if (!cond.evaluate(rec)) { match = false; break; }
+        // Balayage complet : on passe par un anneau pour ne pas vider le pool partagé
+        BufferRing ring = bufferManager.NewRing();
+        try {
+            List<PageId> pages = getDataPages();
+            int depth = bufferManager.getReadAheadDepth(ring);
+        
+            for (int p = 0; p < pages.size(); p++) {
+                PageId pid = pages.get(p);
+                readAhead(pages, p, depth, ring);
+                int deletedInPage = 0;
+                // 1. Lire la page
+                try (PageHandle page = bufferManager.PinPage(pid, ring, name)) {
+                    ByteBuffer pageBuffer = page.getBuffer();
+                    int maxSlot = getSlotCount();
+                    int recordSize = getRecordMaxSize();
+
+                    // 2. Parcourir tous les slots
+                    for (int i = 0; i < maxSlot; i++) {
+                        // Si le slot est occupé (Bytemap = 1)
+                        if (pageBuffer.get(HEADER_PAGE_SIZE + i) == 1) {
+                            // On lit le record pour le tester
+                            int offset = HEADER_PAGE_SIZE + maxSlot + (i * recordSize);
+                            Record rec = new Record();
+                            readFromBuffer(rec, pageBuffer, offset);
+
+                            // 3. Vérifier les conditions
+                            boolean match = true;
+                            if (conditions != null) {
+                                for (Condition cond : conditions) {
+                                    if (!cond.evaluate(rec)) { match = false; break; }
+                                }
+                            }
+
+                            // 4. Si ça matche, on supprime !
+                            if (match) {
+                                // On met le bit à 0
+                                pageBuffer.position(HEADER_PAGE_SIZE + i);
+                                pageBuffer.put((byte) 0);
+                                page.markDirty();
+                                deletedInPage++;
+                            }
                         }
                     }
-                    
-                    // 4. Si ça matche, on supprime !
-                    if (match) {
-                        // On met le bit à 0
-                        pageBuffer.position(HEADER_PAGE_SIZE + i);
-                        pageBuffer.put((byte) 0);
-                        pageModified = true;
-                        count++;
-                    }
+                } // Page libérée ici (Dirty si modifiée)
+
+                // 5. Le répertoire suit (l'entrée p correspond à la page p)
+                if (deletedInPage > 0) {
+                    updateFreeSlots(p, deletedInPage);
+                    count += deletedInPage;
                 }
             }
-            
-            // 5. Libérer la page (Dirty si modifiée)
-            bufferManager.FreePage(pid, pageModified);
+        } finally {
+            bufferManager.ReleaseRing(ring);
         }
         return count;
     }
@@ -567,40 +815,47 @@ public class Relation implements Serializable{
      */
     public int UpdateRecords(java.util.List<Condition> conditions, int colIndex, Object newValue) {
         int count = 0;
-        java.util.List<espaceDisque.PageId> pages = getDataPages();
-        
-        for (espaceDisque.PageId pid : pages) {
-            byte[] rawPage = bufferManager.GetPage(pid);
-            ByteBuffer pageBuffer = ByteBuffer.wrap(rawPage);
-            int maxSlot = getSlotCount();
-            int recordSize = getRecordMaxSize();
-            boolean pageModified = false;
-
-            for (int i = 0; i < maxSlot; i++) {
-                if (pageBuffer.get(HEADER_PAGE_SIZE + i) == 1) {
-                    int offset = HEADER_PAGE_SIZE + maxSlot + (i * recordSize);
-                    Record rec = new Record();
-                    readFromBuffer(rec, pageBuffer, offset);
-                    
-                    boolean match = true;
-                    if (conditions != null) {
-                        for (Condition cond : conditions) {
-                            if (!cond.evaluate(rec)) { match = false; break; }
+        BufferRing ring = bufferManager.NewRing();
+        try {
+            java.util.List<espaceDisque.PageId> pages = getDataPages();
+            int depth = bufferManager.getReadAheadDepth(ring);
+        
+            for (int p = 0; p < pages.size(); p++) {
+                espaceDisque.PageId pid = pages.get(p);
+                readAhead(pages, p, depth, ring);
+                try (PageHandle page = bufferManager.PinPage(pid, ring, name)) {
+                    ByteBuffer pageBuffer = page.getBuffer();
+                    int maxSlot = getSlotCount();
+                    int recordSize = getRecordMaxSize();
+
+                    for (int i = 0; i < maxSlot; i++) {
+                        if (pageBuffer.get(HEADER_PAGE_SIZE + i) == 1) {
+                            int offset = HEADER_PAGE_SIZE + maxSlot + (i * recordSize);
+                            Record rec = new Record();
+                            readFromBuffer(rec, pageBuffer, offset);
+
+                            boolean match = true;
+                            if (conditions != null) {
+                                for (Condition cond : conditions) {
+                                    if (!cond.evaluate(rec)) { match = false; break; }
+                                }
+                            }
+
+                            if (match) {
+                                // Mise à jour en mémoire
+                                rec.values.set(colIndex, newValue);
+                                // Réécriture sur le buffer
+                                writeRecordToBuffer(rec, pageBuffer, offset);
+
+                                page.markDirty();
+                                count++;
+                            }
                         }
                     }
-                    
-                    if (match) {
-                        // Mise à jour en mémoire
-                        rec.values.set(colIndex, newValue);
-                        // Réécriture sur le buffer
-                        writeRecordToBuffer(rec, pageBuffer, offset);
-                        
-                        pageModified = true;
-                        count++;
-                    }
-                }
+                } // Page libérée ici (Dirty si modifiée)
             }
-            bufferManager.FreePage(pid, pageModified);
+        } finally {
+            bufferManager.ReleaseRing(ring);
         }
         return count;
     }
@@ -1,35 +1,126 @@
 package donnees;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Iterator;
 
+import espaceDisque.BufferManager;
+import espaceDisque.BufferRing;
+import espaceDisque.PageHandle;
+import espaceDisque.PageId;
+
+/**
+ * Parcours d'une relation page par page : une seule page de données est épinglée à la fois,
+ * et ses records ne sont décodés qu'au fur et à mesure des appels à GetNextRecord.
+ * Les pages viennent du répertoire de la relation, lu une page de répertoire à la fois :
+ * la mémoire utilisée ne dépend donc pas de la taille de la table.
+ * Ordre de parcours : celui du répertoire (comme GetAllRecords).
+ * Close() doit être appelé pour dépingler la page courante et libérer l'anneau.
+ */
 public class RelationScanner implements IRecordIterator {
-    
-    private List<Record> allRecords;
-    private Iterator<Record> iterator;
+
+    private final Relation relation;
+    private final BufferManager bufferManager;
+    private final int slotCount;
+    private final int recordSize;
+
+    private BufferRing ring;        // Anneau du parcours (créé à la première page)
+    private int readAheadDepth;
+    private List<PageId> directory; // Pages du répertoire (null tant que le parcours n'a pas commencé)
+    private int dirIdx;             // Prochaine page du répertoire à lire
+    private final List<PageId> batch = new ArrayList<>(); // Pages de données de la page de répertoire courante
+    private int batchPos;           // Prochaine page de 'batch' à épingler
+    private PageHandle page;        // Page courante (null entre deux pages)
+    private int slot;               // Prochain slot à examiner dans la page courante
 
     public RelationScanner(Relation relation) {
-        // Version simple : on charge tout en mémoire
-        // (Pour la version optimisée "Page par Page", il faudrait gérer le BufferManager ici)
-        this.allRecords = relation.GetAllRecords();
-        this.iterator = allRecords.iterator();
+        this.relation = relation;
+        this.bufferManager = relation.getBufferManager();
+        this.slotCount = relation.getSlotCount();
+        this.recordSize = relation.getRecordMaxSize();
     }
 
     @Override
     public Record GetNextRecord() {
-        if (iterator.hasNext()) {
-            return iterator.next();
+        while (true) {
+            if (page == null && !openNextPage()) {
+                return null; // Fin du scan
+            }
+
+            ByteBuffer buff = page.getBuffer();
+            while (slot < slotCount) {
+                int i = slot++;
+                if (buff.get(Relation.HEADER_PAGE_SIZE + i) == 1) {
+                    Record rec = new Record();
+                    relation.readFromBuffer(rec, buff, Relation.HEADER_PAGE_SIZE + slotCount + (i * recordSize));
+                    return rec;
+                }
+            }
+
+            // Page terminée : on la rend au pool avant de passer à la suivante
+            page.close();
+            page = null;
         }
-        return null; // Fin du scan
+    }
+
+    /**
+     * Épingle la page de données suivante du répertoire, en demandant la lecture anticipée des suivantes.
+     * @return false si toutes les pages ont été parcourues.
+     */
+    private boolean openNextPage() {
+        if (directory == null) {
+            if (ring == null) {
+                ring = bufferManager.NewRing();
+            }
+            readAheadDepth = bufferManager.getReadAheadDepth(ring);
+            directory = relation.getDirectoryPageIds();
+            dirIdx = 0;
+            batch.clear();
+            batchPos = 0;
+        }
+
+        // Fin des entrées d'une page du répertoire : on passe à la suivante
+        while (batchPos >= batch.size()) {
+            if (dirIdx >= directory.size()) {
+                return false;
+            }
+            batch.clear();
+            relation.readDirectoryPage(directory.get(dirIdx), batch);
+            dirIdx++;
+            batchPos = 0;
+        }
+
+        // Les pages suivantes sont lues pendant qu'on décode celle-ci
+        relation.readAhead(batch, batchPos, readAheadDepth, ring);
+        // BufferPoolFullException si le pool est saturé : les positions n'avancent pas, un nouvel appel réessaie
+        page = bufferManager.PinPage(batch.get(batchPos), ring, relation.getName());
+        batchPos++;
+        slot = 0;
+        return true;
     }
 
     @Override
     public void Close() {
-        // Rien de spécial à fermer dans la version liste
+        closePage();
+        if (ring != null) {
+            bufferManager.ReleaseRing(ring);
+            ring = null;
+        }
     }
 
+    /**
+     * Reprend le parcours au début du répertoire (relu, pour voir les pages ajoutées entre-temps).
+     */
     @Override
     public void Reset() {
-        this.iterator = allRecords.iterator();
+        closePage();
+        directory = null;
+    }
+
+    private void closePage() {
+        if (page != null) {
+            page.close();
+            page = null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,170 @@
+package espaceDisque;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.TreeMap;
+
+/**
+ * Politique ARC (Adaptive Replacement Cache, Megiddo et Modha).
+ * - T1 : pages vues une seule fois récemment ; T2 : pages vues au moins deux fois (LRU chacune).
+ * - B1 / B2 : listes "fantômes" des PageId récemment éjectés de T1 / T2 (sans contenu).
+ * Une demande d'une page de B1 montre que T1 est trop petit : la cible p (taille visée de T1)
+ * augmente ; une demande d'une page de B2 la fait baisser. La politique s'ajuste donc seule
+ * entre récence (APPEND, parcours) et fréquence (lectures ponctuelles répétées).
+ */
+public class ARCPolicy implements IReplacementPolicy {
+
+    private static final int NONE = 0;
+    private static final int T1 = 1;
+    private static final int T2 = 2;
+
+    private int capacity;                    // c : nombre de frames
+    private int target;                      // p : taille visée de T1
+    private long timer;                      // Compteur logique (ordre LRU)
+    private int[] listOf;                    // frame -> NONE, T1 ou T2
+    private long[] stamp;                    // frame -> date du dernier accès
+    private PageId[] pageOf;                 // frame -> page chargée (pour alimenter B1 / B2)
+    private int[] pickedFrom;                // frame -> liste quittée au dernier pickVictim (NONE sinon)
+    private boolean[] evictable;             // frame -> non épinglée ?
+    private int t1Size;                      // |T1| (frames épinglées comprises)
+    private int t2Size;                      // |T2|
+    private TreeMap<Long, Integer> t1Free;   // Frames non épinglées de T1, par date
+    private TreeMap<Long, Integer> t2Free;   // Frames non épinglées de T2, par date
+    private LinkedHashSet<PageId> b1;        // Fantômes de T1 (du plus ancien au plus récent)
+    private LinkedHashSet<PageId> b2;        // Fantômes de T2
+
+    public ARCPolicy(int frameCount) {
+        this.capacity = frameCount;
+        this.target = 0;
+        this.timer = 0;
+        this.listOf = new int[frameCount];
+        this.stamp = new long[frameCount];
+        this.pageOf = new PageId[frameCount];
+        this.pickedFrom = new int[frameCount];
+        this.evictable = new boolean[frameCount];
+        this.t1Free = new TreeMap<>();
+        this.t2Free = new TreeMap<>();
+        this.b1 = new LinkedHashSet<>();
+        this.b2 = new LinkedHashSet<>();
+    }
+
+    public void onLoad(int frameIdx, PageId pageId) {
+        onRemove(frameIdx);
+        pageOf[frameIdx] = pageId;
+        stamp[frameIdx] = ++timer;
+
+        if (b1.remove(pageId)) {
+            // Défaut sur B1 : T1 était trop petit
+            target = Math.min(capacity, target + Math.max(b2.size() / Math.max(b1.size(), 1), 1));
+            addTo(frameIdx, T2);
+        } else if (b2.remove(pageId)) {
+            // Défaut sur B2 : T2 était trop petit
+            target = Math.max(0, target - Math.max(b1.size() / Math.max(b2.size(), 1), 1));
+            addTo(frameIdx, T2);
+        } else {
+            addTo(frameIdx, T1);
+        }
+
+        // Les fantômes ne dépassent pas c (côté T1) ni 2c au total
+        while (t1Size + b1.size() > capacity && !b1.isEmpty()) {
+            dropOldest(b1);
+        }
+        while (t1Size + t2Size + b1.size() + b2.size() > 2 * capacity && !b2.isEmpty()) {
+            dropOldest(b2);
+        }
+    }
+
+    public void onHit(int frameIdx, PageId pageId) {
+        if (listOf[frameIdx] == NONE) {
+            reenter(frameIdx, pageId);
+        }
+        unlink(frameIdx);
+        if (listOf[frameIdx] == T1) {
+            t1Size--;
+            addTo(frameIdx, T2); // Deuxième accès : la page passe dans T2
+        }
+        stamp[frameIdx] = ++timer;
+    }
+
+    public void onUnpin(int frameIdx, PageId pageId) {
+        if (listOf[frameIdx] == NONE) {
+            reenter(frameIdx, pageId);
+        }
+        if (evictable[frameIdx]) {
+            return;
+        }
+        evictable[frameIdx] = true;
+        (listOf[frameIdx] == T2 ? t2Free : t1Free).put(stamp[frameIdx], frameIdx);
+    }
+
+    public int pickVictim(PageId incoming) {
+        // REPLACE : on éjecte de T1 s'il dépasse sa cible, sinon de T2 (ou de l'autre liste si tout y est épinglé)
+        boolean fromT1 = !t1Free.isEmpty()
+                && (t1Size > target || (b2.contains(incoming) && t1Size == target) || t2Free.isEmpty());
+        if (!fromT1 && t2Free.isEmpty()) {
+            return -1;
+        }
+        int frameIdx = (fromT1 ? t1Free : t2Free).firstEntry().getValue();
+        PageId evicted = pageOf[frameIdx];
+        onRemove(frameIdx);
+        (fromT1 ? b1 : b2).add(evicted);
+        pickedFrom[frameIdx] = fromT1 ? T1 : T2;
+        return frameIdx;
+    }
+
+    public void onRemove(int frameIdx) {
+        unlink(frameIdx);
+        if (listOf[frameIdx] == T1) t1Size--;
+        if (listOf[frameIdx] == T2) t2Size--;
+        listOf[frameIdx] = NONE;
+        pageOf[frameIdx] = null;
+        pickedFrom[frameIdx] = NONE;
+    }
+
+    public String getName() {
+        return "ARC";
+    }
+
+    /**
+     * @return La taille visée de T1 (p), utile pour suivre l'adaptation.
+     */
+    public int getTarget() {
+        return target;
+    }
+
+    /**
+     * Reprend une frame que la politique ne suit plus : victime finalement rendue par le BufferManager
+     * (claim perdu, écriture en cours) ou page d'une frame jamais déclarée. Elle retourne dans la liste
+     * qu'elle vient de quitter (T1 par défaut), avec sa date, et son fantôme est retiré de B1 / B2.
+     */
+    private void reenter(int frameIdx, PageId pageId) {
+        if (pickedFrom[frameIdx] == NONE) {
+            stamp[frameIdx] = ++timer;
+        } else {
+            (pickedFrom[frameIdx] == T2 ? b2 : b1).remove(pageId);
+        }
+        addTo(frameIdx, (pickedFrom[frameIdx] == T2) ? T2 : T1);
+        pageOf[frameIdx] = pageId;
+        pickedFrom[frameIdx] = NONE;
+    }
+
+    private void addTo(int frameIdx, int list) {
+        listOf[frameIdx] = list;
+        if (list == T1) t1Size++;
+        else t2Size++;
+    }
+
+    // Retire la frame des candidats à l'éviction (elle est épinglée ou quitte la politique)
+    private void unlink(int frameIdx) {
+        if (evictable[frameIdx]) {
+            (listOf[frameIdx] == T2 ? t2Free : t1Free).remove(stamp[frameIdx]);
+            evictable[frameIdx] = false;
+        }
+    }
+
+    private void dropOldest(LinkedHashSet<PageId> ghosts) {
+        Iterator<PageId> oldest = ghosts.iterator();
+        oldest.next();
+        oldest.remove();
+    }
+}
@@ -0,0 +1,62 @@
+package espaceDisque;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Événements JFR (Java Flight Recorder) émis par le BufferManager.
+ * Ils ne coûtent presque rien tant qu'aucun enregistrement n'est actif. Pour les capturer :
+ *   java -XX:StartFlightRecording=filename=sgbd.jfr,settings=profile ...
+ *   jfr print --events sgbd.PageRead sgbd.jfr
+ */
+final class BufferEvents {
+
+    private BufferEvents() {
+    }
+
+    @Name("sgbd.PageRead")
+    @Label("Lecture de page")
+    @Category({ "SGBD", "Buffer" })
+    static class PageRead extends Event {
+        @Label("Relation")
+        String relation;
+        @Label("Fichier")
+        int fileIdx;
+        @Label("Page")
+        int pageIdx;
+    }
+
+    @Name("sgbd.PageWrite")
+    @Label("Écriture de pages")
+    @Category({ "SGBD", "Buffer" })
+    static class PageWrite extends Event {
+        @Label("Origine")
+        String origin;      // "eviction", "checkpoint", "bgwriter" ou "flush"
+        @Label("Nombre de pages")
+        int pageCount;
+    }
+
+    @Name("sgbd.PageEviction")
+    @Label("Éviction de page")
+    @Category({ "SGBD", "Buffer" })
+    static class PageEviction extends Event {
+        @Label("Relation")
+        String relation;
+        @Label("Politique")
+        String policy;
+        @Label("Page sale")
+        boolean dirty;
+    }
+
+    @Name("sgbd.PinWait")
+    @Label("Attente d'une frame")
+    @Category({ "SGBD", "Buffer" })
+    static class PinWait extends Event {
+        @Label("Relation")
+        String relation;
+        @Label("Abandonnée")
+        boolean timedOut;
+    }
+}
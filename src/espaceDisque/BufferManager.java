@@ -1,96 +1,629 @@
 package espaceDisque;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Gestionnaire de buffers, utilisable par plusieurs threads à la fois.
+ *
+ * Verrous (toujours pris dans cet ordre pour éviter les interblocages) :
+ * 1. les verrous de partition de la table des pages, par indice croissant ;
+ * 2. policyLock, qui protège la politique de remplacement, les frames libres et les anneaux.
+ * Le latch d'une frame est pris pendant le chargement de sa page : les autres threads qui
+ * demandent la même page attendent la fin de la lecture, sans bloquer le reste du pool.
+ * Les E/S disque se font hors des verrous de partition et de policyLock, donc en parallèle.
+ *
+ * Quand toutes les frames sont épinglées, un défaut de page attend (au plus bm_pinwaittimeout ms)
+ * dans une file FIFO qu'une frame soit libérée ; tant que la file n'est pas vide, les nouveaux
+ * défauts de page s'y rangent derrière au lieu de doubler les threads qui attendent déjà.
+ * waitLock n'est jamais tenu pendant la prise d'un autre verrou : il peut être pris sous tous les autres.
+ *
+ * Chaque événement (hit, miss, éviction, attente, E/S) est compté dans trois BufferStats : le total,
+ * celui de la politique courante et celui de la relation propriétaire de la page (voir GetStatsReport),
+ * et émis comme événement JFR (voir BufferEvents).
+ *
+ * Lecture anticipée (bm_readahead) : Prefetch confie au thread de lecture anticipée les prochaines pages
+ * d'un parcours ; elles sont chargées pendant que l'appelant décode la page courante.
+ *
+ * Démarrage à chaud (bm_warmstart) : Finish sauvegarde la liste des pages résidentes, de la plus récemment
+ * utilisée à la plus ancienne ; WarmUp les recharge en tâche de fond dans l'ordre du disque.
+ *
+ * Le pool peut être agrandi ou réduit à chaud (resize, sous lockAll) : bufferPool est alors remplacé
+ * par un nouveau tableau. Un indice de frame obtenu hors verrou est donc revérifié sous verrou.
+ *
+ * Si bm_bgwriterdelay > 0, un thread d'écriture en tâche de fond écrit les pages sales non épinglées
+ * dès que leur proportion dépasse bm_dirtyratio : les évictions trouvent plus souvent des frames propres.
+ */
 public class BufferManager {
 
     // --- CLASSE INTERNE FRAME (Une case de mémoire) ---
     private class Frame {
-        byte[] buffer;      // Le contenu de la page
-        PageId pageId;      // L'identifiant de la page chargée (null si vide)
-        int pinCount;       // Nombre d'utilisateurs actuels (0 = remplaçable)
-        boolean isDirty;    // A-t-elle été modifiée ?
-        long lastUsed;      // Pour le LRU : date du dernier accès
-
-        public Frame(int pageSize) {
-            this.buffer = new byte[pageSize];
+        ByteBuffer data;            // Le contenu de la page (tranche de l'arène hors tas, ou tableau du tas)
+        byte[] buffer;              // Le tableau derrière data en mode "heap" (null en mode "offheap")
+        volatile PageId pageId;     // L'identifiant de la page chargée (null si vide)
+        AtomicInteger pinCount;     // Nombre d'utilisateurs actuels (0 = remplaçable)
+        volatile boolean isDirty;   // A-t-elle été modifiée ?
+        volatile BufferRing ring;   // Anneau propriétaire (null = pool partagé, suivi par la politique)
+        volatile String owner;      // Relation qui a chargé la page (pour les statistiques)
+        volatile long lastAccess;   // Date (nanoTime) du dernier épinglage, pour le rang de la page au Finish
+        ReentrantLock latch;        // Tenu pendant la lecture disque de la page
+        final int index;            // Position dans bufferPool (inchangée par resize)
+
+        public Frame(int index, ByteBuffer data, byte[] buffer) {
+            this.index = index;
+            this.data = data;
+            this.buffer = buffer;
             this.pageId = null;
-            this.pinCount = 0;
+            this.pinCount = new AtomicInteger(0);
             this.isDirty = false;
-            this.lastUsed = 0;
+            this.latch = new ReentrantLock();
         }
-        
+
         // Vide la frame (remise à zéro)
         public void reset() {
             this.pageId = null;
-            this.pinCount = 0;
+            this.pinCount.set(0);
             this.isDirty = false;
-            this.lastUsed = 0;
+            this.owner = null;
+            this.lastAccess = 0;
         }
-        
+
         // Vérifie si la frame est libre (vide)
         public boolean isEmpty() {
             return this.pageId == null;
         }
     }
 
+    // Nombre de partitions de la table des pages (chacune a son propre verrou)
+    private static final int PARTITION_COUNT = 16;
+
+    // Mode "offheap" : l'arène est allouée par blocs d'au plus 1 Go (limite d'un ByteBuffer),
+    // alignés sur 4096 octets pour que les E/S O_DIRECT puissent lire directement dans les frames
+    private static final int ARENA_CHUNK_BYTES = 1 << 30;
+    private static final int ARENA_ALIGN = 4096;
+
+    // Résultats d'une tentative de prise de frame (claimFrame)
+    private static final int CLAIMED = 0;  // La frame contient maintenant la page demandée
+    private static final int PRESENT = 1;  // Un autre thread a chargé la page entre-temps
+    private static final int RETRY = 2;    // La victime a été reprise par un autre thread
+
+    // Clé des statistiques pour les pages demandées sans relation (tests, outils)
+    private static final String NO_OWNER = "(autre)";
+    // Clé des statistiques pour les pages rechargées par WarmUp
+    private static final String WARMUP_OWNER = "(préchauffage)";
+    // Liste des pages chaudes, écrite au Finish et relue par WarmUp
+    private static final String WARM_FILE = "buffer.warm";
+
     // --- VARIABLES MEMBRES ---
     private DBConfig dbConfig;
     private DiskManager diskManager;
-    private Frame[] bufferPool;      // Notre mémoire RAM
-    private long timer;      // Compteur logique pour le LRU
-    private String currentPolicy;
+    private volatile Frame[] bufferPool;  // Notre mémoire RAM (remplacé par resize)
+    private boolean offHeap;         // bm_memory = "offheap" : frames hors du tas Java
+    private Map<PageId, Integer>[] partitions;  // Table des pages partitionnée : PageId -> indice de la frame
+    private ReentrantLock[] partitionLocks;     // Un verrou par partition
+    private ReentrantLock policyLock;           // Protège policy, freeFrames et les anneaux
+    private ArrayDeque<Integer> freeFrames;  // Frames vides, prises avant toute éviction
+    private IReplacementPolicy policy;       // Choix de la victime parmi les frames non épinglées
+    private volatile String currentPolicy;
+    private BufferStats totalStats;          // Compteurs de tout le pool
+    private Map<String, BufferStats> policyStats;    // Compteurs par politique de remplacement
+    private Map<String, BufferStats> relationStats;  // Compteurs par relation
+    private AtomicInteger dirtyCount;        // Nombre de frames sales (isDirty)
+    private AtomicLong bgWrittenPages;       // Pages écrites par le writer de fond
+    private Thread bgWriter;                 // Writer de fond (null si bm_bgwriterdelay <= 0)
+    private volatile boolean bgWriterRunning;
+    private Thread warmupThread;             // Préchargement des pages chaudes (null si aucun)
+    private volatile boolean warmupRunning;
+    private CountDownLatch warmupDone;       // Ouvert quand le préchargement est terminé
+    private volatile int warmupPages;        // Pages rechargées par WarmUp
+    private volatile long warmupNanos;       // Durée du préchargement
+    private ExecutorService readAhead;       // Thread de lecture anticipée (créé au premier Prefetch)
+    private AtomicLong prefetchedPages;      // Pages lues par la lecture anticipée
+    private ReentrantLock waitLock;          // Protège la file d'attente des défauts de page sans frame
+    private Condition frameReleased;         // Signalée quand une frame peut être redevenue disponible
+    private ArrayDeque<Thread> waitQueue;    // Threads en attente d'une frame, dans l'ordre d'arrivée
+    private AtomicInteger waitingCount;      // Taille de waitQueue (lue sans verrou)
+    private long releaseSeq;                 // Nombre de libérations signalées (sous waitLock)
 
     // --- CONSTRUCTEUR ---
+    @SuppressWarnings("unchecked")
     public BufferManager(DBConfig dbConfig, DiskManager diskManager) {
         this.dbConfig = dbConfig;
         this.diskManager = diskManager;
-        
+
         // On crée le tableau de frames selon la config
+        this.offHeap = "offheap".equalsIgnoreCase(dbConfig.bm_memory);
         this.bufferPool = new Frame[dbConfig.bm_buffercount];
+        createFrames(this.bufferPool, 0);
+        this.partitions = (Map<PageId, Integer>[]) new Map<?, ?>[PARTITION_COUNT];
+        this.partitionLocks = new ReentrantLock[PARTITION_COUNT];
+        for (int i = 0; i < PARTITION_COUNT; i++) {
+            this.partitions[i] = new HashMap<>();
+            this.partitionLocks[i] = new ReentrantLock();
+        }
+        this.policyLock = new ReentrantLock();
+        this.freeFrames = new ArrayDeque<>(this.bufferPool.length);
         for (int i = 0; i < this.bufferPool.length; i++) {
-            this.bufferPool[i] = new Frame(dbConfig.pagesize);
+            this.freeFrames.add(i);
+        }
+        this.totalStats = new BufferStats();
+        this.policyStats = new ConcurrentHashMap<>();
+        this.relationStats = new ConcurrentHashMap<>();
+        this.dirtyCount = new AtomicInteger();
+        this.bgWrittenPages = new AtomicLong();
+        this.prefetchedPages = new AtomicLong();
+        this.waitLock = new ReentrantLock();
+        this.frameReleased = waitLock.newCondition();
+        this.waitQueue = new ArrayDeque<>();
+        this.waitingCount = new AtomicInteger();
+
+        // On prend la config par défaut
+        this.policy = createPolicy(dbConfig.bm_policy);
+        if (this.policy == null) {
+            System.err.println("Politique inconnue : " + dbConfig.bm_policy + ". On utilise LRU");
+            this.policy = createPolicy("LRU");
+        }
+        this.currentPolicy = this.policy.getName();
+
+        if (dbConfig.bm_bgwriterdelay > 0) {
+            startBackgroundWriter();
+        }
+    }
+
+    // Crée les frames pool[from..] selon le mode mémoire
+    private void createFrames(Frame[] pool, int from) {
+        if (offHeap) {
+            allocateArena(pool, from);
+        } else {
+            for (int i = from; i < pool.length; i++) {
+                byte[] buffer = new byte[dbConfig.pagesize];
+                pool[i] = new Frame(i, ByteBuffer.wrap(buffer), buffer);
+            }
+        }
+    }
+
+    /**
+     * Mode "offheap" : toutes les frames sont des tranches de quelques grands buffers directs.
+     * Leur taille n'entre plus dans le tas, donc plus dans les pauses du GC.
+     * Un agrandissement (resize) alloue une nouvelle arène pour les seules frames ajoutées.
+     */
+    private void allocateArena(Frame[] pool, int from) {
+        int framesPerChunk = Math.max(1, ARENA_CHUNK_BYTES / dbConfig.pagesize);
+        for (int first = from; first < pool.length; first += framesPerChunk) {
+            int count = Math.min(framesPerChunk, pool.length - first);
+            ByteBuffer chunk = ByteBuffer.allocateDirect(count * dbConfig.pagesize + ARENA_ALIGN).alignedSlice(ARENA_ALIGN);
+            for (int i = 0; i < count; i++) {
+                pool[first + i] = new Frame(first + i, chunk.slice(i * dbConfig.pagesize, dbConfig.pagesize), null);
+            }
         }
-        this.timer = 0;
-        this.currentPolicy = dbConfig.bm_policy; // On prend la config par défaut
     }
 
     /**
      * Méthode principale : Demande l'accès à une page.
      * La charge depuis le disque si nécessaire.
+     * Réservée au mode bm_memory = "heap" (le tableau renvoyé EST la frame) ; sinon utiliser GetPageBuffer.
      */
     public byte[] GetPage(PageId pageId) {
-        this.timer++; // On avance le temps (pour le LRU)
+        return GetPage(pageId, null);
+    }
 
-        // 1. Chercher si la page est déjà en mémoire
-        for (Frame frame : bufferPool) {
-            if (frame.pageId != null && frame.pageId.equals(pageId)) {
-                // TROUVÉE !
-                frame.pinCount++;       // On signale qu'on l'utilise
-                frame.lastUsed = timer; // Mise à jour pour LRU
-                return frame.buffer;
-            }
+    /**
+     * Variante de GetPage pour les accès en masse : en cas de défaut de page, la page est chargée
+     * dans une frame de l'anneau donné (recyclée tour à tour) au lieu d'évincer une page du pool partagé.
+     * @param ring L'anneau obtenu par NewRing(), ou null pour le comportement normal.
+     */
+    public byte[] GetPage(PageId pageId, BufferRing ring) {
+        if (offHeap) {
+            throw new IllegalStateException("GetPage(byte[]) indisponible avec bm_memory=offheap : utiliser GetPageBuffer");
+        }
+        Frame frame = pin(pageId, ring, null);
+        return (frame == null) ? null : frame.buffer;
+    }
+
+    /**
+     * Demande l'accès à une page sous forme de ByteBuffer (fonctionne dans les deux modes mémoire).
+     * Le buffer renvoyé est une vue propre à l'appelant (position 0, limite pagesize) sur la frame :
+     * ses écritures modifient directement la page en mémoire.
+     */
+    public ByteBuffer GetPageBuffer(PageId pageId) {
+        return GetPageBuffer(pageId, null);
+    }
+
+    /**
+     * Variante de GetPageBuffer qui passe par un anneau (voir GetPage(PageId, BufferRing)).
+     */
+    public ByteBuffer GetPageBuffer(PageId pageId, BufferRing ring) {
+        return GetPageBuffer(pageId, ring, null);
+    }
+
+    /**
+     * Variante de GetPageBuffer qui indique la relation demandeuse : hits, misses, évictions et E/S
+     * de la page sont alors comptés pour elle dans SHOW BUFFER STATS.
+     * @param owner Le nom de la relation (null = non attribué).
+     */
+    public ByteBuffer GetPageBuffer(PageId pageId, BufferRing ring, String owner) {
+        Frame frame = pin(pageId, ring, owner);
+        return (frame == null) ? null : frame.data.duplicate();
+    }
+
+    /**
+     * Épingle une page et renvoie un handle qui la dépinglera en O(1) à sa fermeture (try-with-resources).
+     * Contrairement à GetPage, ne renvoie jamais null.
+     * @return Le handle de la page épinglée.
+     * @throws BufferPoolFullException si aucune frame ne s'est libérée en bm_pinwaittimeout ms.
+     */
+    public PageHandle PinPage(PageId pageId) {
+        return PinPage(pageId, null, null);
+    }
+
+    /**
+     * Variante de PinPage qui passe par un anneau et attribue la page à une relation
+     * (voir GetPage(PageId, BufferRing) et GetPageBuffer(PageId, BufferRing, String)).
+     * @throws BufferPoolFullException si aucune frame ne s'est libérée en bm_pinwaittimeout ms.
+     */
+    public PageHandle PinPage(PageId pageId, BufferRing ring, String owner) {
+        Frame frame = pin(pageId, ring, owner);
+        if (frame == null) {
+            throw new BufferPoolFullException(pageId, bufferPool.length, dbConfig.bm_pinwaittimeout);
+        }
+        return new PageHandle(this, frame.index, pageId, frame.data.duplicate());
+    }
+
+    /**
+     * Épingle la page demandée, en la chargeant depuis le disque si nécessaire.
+     * Si toutes les frames sont épinglées, attend qu'une frame soit libérée (au plus bm_pinwaittimeout ms).
+     * @return Sa frame, ou null si aucune frame ne s'est libérée à temps.
+     */
+    private Frame pin(PageId pageId, BufferRing ring, String owner) {
+        // 1. Chercher si la page est déjà en mémoire (une seule partition verrouillée)
+        Frame frame = pinIfPresent(pageId);
+        if (frame != null) {
+            // TROUVÉE !
+            record(owner, BufferStats::recordHit);
+            waitLoaded(frame);
+            return frame;
         }
 
         // 2. Pas trouvée : Il faut la charger. Trouver une frame libre ou remplaçable.
-        Frame victim = pickVictim();
+        // Si d'autres threads attendent déjà une frame, on passe derrière eux (file FIFO).
+        record(owner, BufferStats::recordMiss);
+        if (waitingCount.get() == 0) {
+            frame = load(pageId, ring, owner);
+            if (frame != null) {
+                return frame;
+            }
+        }
+        return waitForFrame(pageId, ring, owner);
+    }
+
+    /**
+     * Attend son tour dans la file, puis qu'une frame soit libérée, et charge la page.
+     * Seul le thread en tête de file tente un chargement : les suivants ne peuvent pas le doubler.
+     * @return La frame, ou null après bm_pinwaittimeout ms (0 = pas d'attente).
+     */
+    private Frame waitForFrame(PageId pageId, BufferRing ring, String owner) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(dbConfig.bm_pinwaittimeout);
+        Thread me = Thread.currentThread();
+        Frame frame = null;
+        boolean waited = false;
+        BufferEvents.PinWait event = new BufferEvents.PinWait();
+        event.begin();
+
+        waitLock.lock();
+        waitQueue.addLast(me);
+        waitingCount.incrementAndGet();
+        try {
+            while (true) {
+                if (waitQueue.peekFirst() == me) {
+                    long seq = releaseSeq;
+                    waitLock.unlock();
+                    try {
+                        frame = pinIfPresent(pageId); // Un autre thread a pu la charger entre-temps
+                        if (frame != null) {
+                            waitLoaded(frame);
+                        } else {
+                            frame = load(pageId, ring, owner);
+                        }
+                    } finally {
+                        waitLock.lock();
+                    }
+                    if (frame != null) {
+                        break;
+                    }
+                    if (releaseSeq != seq) {
+                        continue; // Une frame a été libérée pendant l'essai : on réessaie tout de suite
+                    }
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                waited = true;
+                try {
+                    frameReleased.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } finally {
+            waitQueue.remove(me);
+            waitingCount.decrementAndGet();
+            frameReleased.signalAll(); // Le suivant passe en tête de file
+            waitLock.unlock();
+        }
+
+        boolean timedOut = (frame == null);
+        if (waited || timedOut) {
+            long nanos = System.nanoTime() - start;
+            record(owner, stats -> stats.recordPinWait(nanos, timedOut));
+            event.end();
+            if (event.shouldCommit()) {
+                event.relation = ownerKey(owner);
+                event.timedOut = timedOut;
+                event.commit();
+            }
+        }
+        if (timedOut) {
+            System.err.println("[BufferManager] ERREUR CRITIQUE : Toutes les frames sont utilisées (pin_count > 0) depuis "
+                    + dbConfig.bm_pinwaittimeout + " ms !");
+        }
+        return frame;
+    }
+
+    // Réveille les threads en attente d'une frame (appelé après chaque libération possible)
+    private void signalFrameReleased() {
+        if (waitingCount.get() == 0) {
+            return;
+        }
+        waitLock.lock();
+        try {
+            releaseSeq++;
+            frameReleased.signalAll();
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    /**
+     * Charge la page dans une frame libre ou remplaçable.
+     * Plusieurs essais : la victime proposée peut être reprise par un autre thread entre-temps.
+     * @return Sa frame épinglée, ou null si aucune frame n'est disponible.
+     */
+    private Frame load(PageId pageId, BufferRing ring, String owner) {
+        Frame frame;
+        for (int attempt = 0; attempt <= 2 * bufferPool.length; attempt++) {
+            int victimIdx = chooseFrame(pageId, ring);
+            if (victimIdx == -1) {
+                break;
+            }
+
+            int result = claimFrame(victimIdx, pageId, owner);
+            if (result == CLAIMED) {
+                return bufferPool[victimIdx];
+            }
+            if (result == PRESENT) {
+                frame = pinIfPresent(pageId);
+                if (frame != null) {
+                    waitLoaded(frame);
+                    return frame;
+                }
+            }
+        }
+        return null; // Toutes les frames sont épinglées
+    }
+
+    /**
+     * Épingle la page si elle est en mémoire.
+     * @return Sa frame, ou null si la page n'est pas chargée.
+     */
+    private Frame pinIfPresent(PageId pageId) {
+        int part = partitionOf(pageId);
+        partitionLocks[part].lock();
+        try {
+            Integer idx = partitions[part].get(pageId);
+            if (idx == null) {
+                return null;
+            }
+            Frame frame = bufferPool[idx];
+            frame.pinCount.incrementAndGet(); // On signale qu'on l'utilise
+            frame.lastAccess = System.nanoTime();
+            if (frame.ring == null) {
+                policyLock.lock();
+                try {
+                    policy.onHit(idx, pageId); // Mise à jour pour la politique
+                } finally {
+                    policyLock.unlock();
+                }
+            }
+            return frame;
+        } finally {
+            partitionLocks[part].unlock();
+        }
+    }
+
+    // Attend la fin d'un éventuel chargement en cours de la frame
+    private void waitLoaded(Frame frame) {
+        frame.latch.lock();
+        frame.latch.unlock();
+    }
+
+    /**
+     * Installe la page demandée dans la frame victime, puis la lit sur le disque.
+     * Une victime sale est d'abord écrite PENDANT qu'elle est encore dans la table des pages :
+     * un autre thread qui la redemande la retrouve en mémoire au lieu de relire une version périmée.
+     * @return CLAIMED, PRESENT ou RETRY.
+     */
+    private int claimFrame(int frameIdx, PageId pageId, String owner) {
+        Frame[] pool = bufferPool;
+        if (frameIdx >= pool.length) {
+            return RETRY; // Frame supprimée par un resize
+        }
+        Frame frame = pool[frameIdx];
+        PageId old = frame.pageId;
+        String oldOwner = frame.owner;
+
+        // 1. Si la victime est sale (dirty), on doit d'abord la sauvegarder !
+        boolean dirtyVictim = (old != null && frame.isDirty);
+        if (dirtyVictim && !writeBack(frame, old)) {
+            return RETRY;
+        }
+
+        int newPart = partitionOf(pageId);
+        int oldPart = (old == null) ? newPart : partitionOf(old);
+        lockPartitions(oldPart, newPart);
+        try {
+            if (frameIdx >= bufferPool.length || bufferPool[frameIdx] != frame) {
+                return RETRY; // Un resize est passé entre-temps : la frame n'est plus dans le pool
+            }
+            if (partitions[newPart].containsKey(pageId)) {
+                giveBack(frameIdx, old);
+                return PRESENT;
+            }
+            if (frame.pageId != old || frame.pinCount.get() != 0 || frame.isDirty) {
+                giveBack(frameIdx, old);
+                return RETRY;
+            }
+
+            // 2. On installe la nouvelle page dans la frame victime
+            if (old != null) {
+                partitions[oldPart].remove(old);
+            }
+            frame.reset(); // On nettoie les anciennes infos
+            frame.pageId = pageId;
+            frame.owner = owner;
+            frame.lastAccess = System.nanoTime();
+            frame.pinCount.set(1); // On l'utilise tout de suite
+            partitions[newPart].put(pageId, frameIdx);
+            frame.latch.lock(); // Les autres demandeurs de la page attendent la lecture
+            if (frame.ring == null) {
+                policyLock.lock();
+                try {
+                    policy.onLoad(frameIdx, pageId);
+                } finally {
+                    policyLock.unlock();
+                }
+            }
+        } finally {
+            unlockPartitions(oldPart, newPart);
+        }
 
-        if (victim == null) {
-            System.err.println("[BufferManager] ERREUR CRITIQUE : Toutes les frames sont utilisées (pin_count > 0) !");
-            return null; // On ne peut rien faire, la mémoire est saturée
+        if (old != null) {
+            String policyName = currentPolicy;
+            record(oldOwner, stats -> stats.recordEviction(dirtyVictim));
+            BufferEvents.PageEviction eviction = new BufferEvents.PageEviction();
+            if (eviction.shouldCommit()) {
+                eviction.relation = ownerKey(oldOwner);
+                eviction.policy = policyName;
+                eviction.dirty = dirtyVictim;
+                eviction.commit();
+            }
         }
 
-        // 3. Si la victime est sale (dirty), on doit d'abord la sauvegarder !
-        if (victim.pageId != null && victim.isDirty) {
-            diskManager.WritePage(victim.pageId, victim.buffer);
+        // 3. Lecture disque, hors des verrous
+        BufferEvents.PageRead event = new BufferEvents.PageRead();
+        long start = System.nanoTime();
+        event.begin();
+        try {
+            diskManager.ReadPage(pageId, frame.data);
+        } finally {
+            frame.latch.unlock();
+        }
+        long nanos = System.nanoTime() - start;
+        record(owner, stats -> stats.recordRead(nanos));
+        event.end();
+        if (event.shouldCommit()) {
+            event.relation = ownerKey(owner);
+            event.fileIdx = pageId.FileIdx;
+            event.pageIdx = pageId.PageIdx;
+            event.commit();
+        }
+        return CLAIMED;
+    }
+
+    /**
+     * Écrit une victime sale sur le disque en la gardant épinglée pendant l'écriture.
+     * Si l'écriture échoue, la page reste sale et la frame est rendue à la politique (pas de perte).
+     * @return false si la frame a été reprise entre-temps par un autre thread, ou si l'écriture a échoué.
+     */
+    private boolean writeBack(Frame frame, PageId old) {
+        int part = partitionOf(old);
+        partitionLocks[part].lock();
+        try {
+            if (frame.pageId != old || frame.pinCount.get() != 0) {
+                return false; // Reprise ou épinglée : son dernier FreePage la rendra à la politique
+            }
+            frame.pinCount.incrementAndGet();
+            markClean(frame); // Une modification pendant l'écriture remettra le flag
+        } finally {
+            partitionLocks[part].unlock();
         }
 
-        // 4. On charge la nouvelle page dans la frame victime
-        victim.reset(); // On nettoie les anciennes infos
-        victim.pageId = pageId;
-        diskManager.ReadPage(pageId, victim.buffer); // Lecture disque
-        victim.pinCount = 1; // On l'utilise tout de suite
-        victim.lastUsed = timer;
+        boolean written = timedWrite(List.of(old), new ByteBuffer[] { frame.data }, new String[] { frame.owner }, "eviction");
+
+        partitionLocks[part].lock();
+        try {
+            frame.pinCount.decrementAndGet();
+            if (!written) {
+                markDirty(frame);
+                giveBack(frame.index, old);
+            }
+        } finally {
+            partitionLocks[part].unlock();
+        }
+        return written;
+    }
 
-        return victim.buffer;
+    /**
+     * Rend une victime finalement non utilisée (appelé sous le verrou de partition) :
+     * une frame vide retourne dans freeFrames, une page non épinglée redevient remplaçable.
+     * Une frame qui a changé de page appartient désormais à un autre thread : on n'y touche pas.
+     */
+    private void giveBack(int frameIdx, PageId old) {
+        Frame frame = bufferPool[frameIdx];
+        if (frame.pageId != old || frame.ring != null || frame.pinCount.get() != 0) {
+            return;
+        }
+        policyLock.lock();
+        try {
+            if (old == null) {
+                freeFrames.add(frameIdx);
+            } else {
+                policy.onUnpin(frameIdx, old); // pickVictim l'avait retirée : la politique la reprend
+            }
+        } finally {
+            policyLock.unlock();
+        }
+        signalFrameReleased();
     }
 
     /**
@@ -98,82 +631,1003 @@ public class BufferManager {
      * @param valdirty : true si la page a été modifiée par l'utilisateur
      */
     public void FreePage(PageId pageId, boolean valdirty) {
-        for (Frame frame : bufferPool) {
-            if (frame.pageId != null && frame.pageId.equals(pageId)) {
-                if (frame.pinCount > 0) {
-                    frame.pinCount--;
-                }
-                if (valdirty) {
-                    frame.isDirty = true;
-                }
+        boolean released;
+        int part = partitionOf(pageId);
+        partitionLocks[part].lock();
+        try {
+            Integer idx = partitions[part].get(pageId);
+            if (idx == null) {
+                System.err.println("[BufferManager] Tentative de libérer une page non chargée : " + pageId);
+                return;
+            }
+            released = unpinLocked(idx, pageId, valdirty);
+        } finally {
+            partitionLocks[part].unlock();
+        }
+        if (released) {
+            signalFrameReleased();
+        }
+    }
+
+    /**
+     * Dépinglage par PageHandle.close() : l'indice de frame est connu, pas de recherche dans la table des pages.
+     * Une frame épinglée n'est jamais évincée ni retirée par resize, donc l'indice est toujours valide.
+     */
+    void unpin(int frameIdx, PageId pageId, boolean valdirty) {
+        boolean released;
+        int part = partitionOf(pageId);
+        partitionLocks[part].lock();
+        try {
+            if (!pageId.equals(bufferPool[frameIdx].pageId)) {
+                System.err.println("[BufferManager] Handle périmé : " + pageId + " n'est plus dans sa frame");
                 return;
             }
+            released = unpinLocked(frameIdx, pageId, valdirty);
+        } finally {
+            partitionLocks[part].unlock();
+        }
+        if (released) {
+            signalFrameReleased();
+        }
+    }
+
+    /**
+     * Décrémente le pin_count (sous le verrou de partition de la page).
+     * @return true si la frame est devenue remplaçable.
+     */
+    private boolean unpinLocked(int idx, PageId pageId, boolean valdirty) {
+        Frame frame = bufferPool[idx];
+        if (valdirty && !frame.isDirty) {
+            frame.isDirty = true; // Avant le dépinglage : une éviction verra le flag
+            dirtyCount.incrementAndGet();
+        }
+        if (frame.pinCount.get() > 0 && frame.pinCount.decrementAndGet() == 0) {
+            if (frame.ring == null) {
+                policyLock.lock();
+                try {
+                    policy.onUnpin(idx, pageId); // Elle devient remplaçable
+                } finally {
+                    policyLock.unlock();
+                }
+            }
+            return true;
         }
-        System.err.println("[BufferManager] Tentative de libérer une page non chargée : " + pageId);
+        return false;
     }
 
     /**
      * Écrit toutes les pages modifiées (dirty) sur le disque et vide le buffer.
+     * À appeler quand plus aucun autre thread n'utilise le pool (arrêt, tests).
      */
     public void FlushBuffers() {
-        for (Frame frame : bufferPool) {
-            if (!frame.isEmpty()) {
-                if (frame.isDirty) {
-                    diskManager.WritePage(frame.pageId, frame.buffer);
+        lockAll();
+        try {
+            writeDirtyFrames(0);
+
+            // On vide toutes les frames
+            for (int i = 0; i < bufferPool.length; i++) {
+                if (!bufferPool[i].isEmpty()) {
+                    emptyFrame(i);
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Écrit les frames sales d'indice >= from (sous lockAll), triées dans l'ordre du disque (FileIdx, PageIdx) :
+     * les pages contiguës partent en une seule grosse écriture (E/S groupée du DiskManager)
+     * au lieu d'écritures aléatoires dans l'ordre du pool.
+     */
+    private void writeDirtyFrames(int from) {
+        List<Frame> dirtyFrames = new ArrayList<>();
+        for (int i = from; i < bufferPool.length; i++) {
+            Frame frame = bufferPool[i];
+            if (!frame.isEmpty() && frame.isDirty) {
+                dirtyFrames.add(frame);
+            }
+        }
+        dirtyFrames.sort((a, b) -> a.pageId.compareTo(b.pageId));
+
+        List<PageId> pageIds = new ArrayList<>();
+        ByteBuffer[] buffers = new ByteBuffer[dirtyFrames.size()];
+        String[] owners = new String[dirtyFrames.size()];
+        for (int i = 0; i < dirtyFrames.size(); i++) {
+            Frame frame = dirtyFrames.get(i);
+            pageIds.add(frame.pageId);
+            buffers[i] = frame.data;
+            owners[i] = frame.owner;
+        }
+        if (timedWrite(pageIds, buffers, owners, "flush")) {
+            for (Frame frame : dirtyFrames) {
+                markClean(frame);
+            }
+        }
+    }
+
+    /**
+     * Point de contrôle : écrit toutes les pages sales SANS vider le pool (contrairement à FlushBuffers).
+     * Les pages restent en cache ; le pool reste utilisable par les autres threads pendant l'écriture.
+     * Les pages épinglées à cet instant sont en cours de modification : elles ne sont pas écrites
+     * (pas de page à moitié mise à jour sur le disque) et restent sales pour le prochain point de contrôle.
+     * @return Le nombre de pages écrites.
+     */
+    public int Checkpoint() {
+        Frame[] pool = bufferPool;
+        List<Integer> dirtyFrames = new ArrayList<>();
+        for (int i = 0; i < pool.length; i++) {
+            if (pool[i].isDirty) {
+                dirtyFrames.add(i);
+            }
+        }
+        return writeFrames(dirtyFrames, "checkpoint");
+    }
+
+    /**
+     * Écrit les frames sales données sans les retirer du pool, en une écriture groupée dans l'ordre du disque.
+     * Les frames épinglées (en cours d'utilisation) sont ignorées ; les autres sont épinglées le temps
+     * de l'écriture (elles ne peuvent donc pas être évincées entre-temps). Si l'écriture échoue,
+     * elles redeviennent sales.
+     * @param origin "checkpoint" ou "bgwriter" (événement JFR).
+     * @return Le nombre de pages écrites.
+     */
+    private int writeFrames(List<Integer> frameIdxs, String origin) {
+        Frame[] pool = bufferPool;
+        List<Integer> pinned = new ArrayList<>();
+        for (int frameIdx : frameIdxs) {
+            if (frameIdx >= pool.length) {
+                continue; // Frame supprimée par un resize (ses pages sales ont été écrites)
+            }
+            Frame frame = pool[frameIdx];
+            PageId pageId = frame.pageId;
+            if (pageId == null) {
+                continue;
+            }
+            int part = partitionOf(pageId);
+            partitionLocks[part].lock();
+            try {
+                if (frame.pageId != pageId || !frame.isDirty || frame.pinCount.get() > 0) {
+                    continue;
+                }
+                frame.pinCount.incrementAndGet();
+                markClean(frame); // Une modification pendant l'écriture remettra le flag
+                pinned.add(frameIdx);
+            } finally {
+                partitionLocks[part].unlock();
+            }
+        }
+        pinned.sort(Comparator.comparing(i -> bufferPool[i].pageId));
+
+        List<PageId> pageIds = new ArrayList<>();
+        ByteBuffer[] buffers = new ByteBuffer[pinned.size()];
+        String[] owners = new String[pinned.size()];
+        for (int i = 0; i < pinned.size(); i++) {
+            Frame frame = bufferPool[pinned.get(i)];
+            pageIds.add(frame.pageId);
+            buffers[i] = frame.data;
+            owners[i] = frame.owner;
+        }
+        boolean written = timedWrite(pageIds, buffers, owners, origin);
+
+        for (int frameIdx : pinned) {
+            if (!written) {
+                Frame frame = bufferPool[frameIdx];
+                int part = partitionOf(frame.pageId);
+                partitionLocks[part].lock();
+                try {
+                    markDirty(frame); // Encore épinglée : elle n'a pas pu être évincée entre-temps
+                } finally {
+                    partitionLocks[part].unlock();
+                }
+            }
+            unpinInternal(frameIdx);
+        }
+        return written ? pinned.size() : 0;
+    }
+
+    /**
+     * Écrit un lot de pages et compte la durée : une écriture groupée est répartie également
+     * entre ses pages dans l'histogramme des écritures.
+     * @param origin "eviction", "checkpoint", "bgwriter" ou "flush" (événement JFR).
+     * @return false si le DiskManager n'a pas pu écrire toutes les pages.
+     */
+    private boolean timedWrite(List<PageId> pageIds, ByteBuffer[] buffers, String[] owners, String origin) {
+        if (pageIds.isEmpty()) {
+            return true;
+        }
+        BufferEvents.PageWrite event = new BufferEvents.PageWrite();
+        long start = System.nanoTime();
+        event.begin();
+        boolean written;
+        if (pageIds.size() == 1) {
+            written = diskManager.WritePage(pageIds.get(0), buffers[0]);
+        } else {
+            written = diskManager.WritePages(pageIds, buffers);
+        }
+        long perPage = (System.nanoTime() - start) / pageIds.size();
+        event.end();
+        for (String owner : owners) {
+            record(owner, stats -> stats.recordWrite(perPage));
+        }
+        if (event.shouldCommit()) {
+            event.origin = origin;
+            event.pageCount = pageIds.size();
+            event.commit();
+        }
+        return written;
+    }
+
+    // Compte un événement pour le total, la politique courante et la relation propriétaire
+    private void record(String owner, Consumer<BufferStats> event) {
+        event.accept(totalStats);
+        event.accept(policyStats.computeIfAbsent(currentPolicy, k -> new BufferStats()));
+        event.accept(relationStats.computeIfAbsent(ownerKey(owner), k -> new BufferStats()));
+    }
+
+    private static String ownerKey(String owner) {
+        return (owner == null) ? NO_OWNER : owner;
+    }
+
+    // Retire l'épinglage posé par le BufferManager lui-même (écriture en cours)
+    private void unpinInternal(int frameIdx) {
+        Frame frame = bufferPool[frameIdx];
+        boolean released = false;
+        int part = partitionOf(frame.pageId);
+        partitionLocks[part].lock();
+        try {
+            if (frame.pinCount.decrementAndGet() == 0) {
+                if (frame.ring == null) {
+                    policyLock.lock();
+                    try {
+                        // Une éviction a pu l'écarter pendant l'écriture : on la redéclare remplaçable
+                        policy.onUnpin(frameIdx, frame.pageId);
+                    } finally {
+                        policyLock.unlock();
+                    }
+                }
+                released = true;
+            }
+        } finally {
+            partitionLocks[part].unlock();
+        }
+        if (released) {
+            signalFrameReleased();
+        }
+    }
+
+    // Marque une frame propre (sous le verrou de sa partition, ou lockAll)
+    private void markClean(Frame frame) {
+        if (frame.isDirty) {
+            frame.isDirty = false;
+            dirtyCount.decrementAndGet();
+        }
+    }
+
+    // Remet le flag d'une frame dont l'écriture a échoué (sous le verrou de sa partition)
+    private void markDirty(Frame frame) {
+        if (!frame.isDirty) {
+            frame.isDirty = true;
+            dirtyCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Démarre le writer de fond : toutes les bm_bgwriterdelay ms, si la proportion de frames sales
+     * dépasse bm_dirtyratio, il écrit les pages sales non épinglées jusqu'à revenir à la moitié du seuil.
+     */
+    private void startBackgroundWriter() {
+        bgWriterRunning = true;
+        bgWriter = new Thread(() -> {
+            while (bgWriterRunning) {
+                try {
+                    Thread.sleep(dbConfig.bm_bgwriterdelay);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                Frame[] pool = bufferPool;
+                int threshold = (int) (pool.length * dbConfig.bm_dirtyratio);
+                int dirty = dirtyCount.get();
+                if (dirty <= threshold) {
+                    continue;
+                }
+                List<Integer> candidates = new ArrayList<>();
+                int toWrite = dirty - threshold / 2;
+                for (int i = 0; i < pool.length && candidates.size() < toWrite; i++) {
+                    Frame frame = pool[i];
+                    if (frame.isDirty && frame.pinCount.get() == 0) {
+                        candidates.add(i);
+                    }
+                }
+                bgWrittenPages.addAndGet(writeFrames(candidates, "bgwriter"));
+            }
+        }, "BufferManager-bgwriter");
+        bgWriter.setDaemon(true);
+        bgWriter.start();
+    }
+
+    /**
+     * Arrêt du BufferManager : arrête le writer de fond puis écrit et vide tout le pool.
+     */
+    public void Finish() {
+        if (bgWriter != null) {
+            bgWriterRunning = false;
+            bgWriter.interrupt();
+            try {
+                bgWriter.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            bgWriter = null;
+        }
+        if (readAhead != null) {
+            readAhead.shutdown();
+            try {
+                readAhead.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            readAhead = null;
+        }
+        if (warmupThread != null) {
+            warmupRunning = false;
+            try {
+                warmupThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            warmupThread = null;
+        }
+        if (dbConfig.bm_warmstart) {
+            saveHotPages();
+        }
+        FlushBuffers();
+    }
+
+    /**
+     * Sauvegarde la liste des pages résidentes du pool partagé (hors anneaux), de la plus récemment
+     * épinglée (rang 0) à la plus ancienne. Format : nombre de pages puis (FileIdx, PageIdx) par rang.
+     */
+    private void saveHotPages() {
+        List<Frame> resident = new ArrayList<>();
+        lockAll();
+        try {
+            for (Frame frame : bufferPool) {
+                if (!frame.isEmpty() && frame.ring == null) {
+                    resident.add(frame);
+                }
+            }
+            resident.sort((a, b) -> Long.compare(b.lastAccess, a.lastAccess));
+
+            File warmFile = new File(dbConfig.dbpath + File.separator + WARM_FILE);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(warmFile)))) {
+                out.writeInt(resident.size());
+                for (Frame frame : resident) {
+                    out.writeInt(frame.pageId.FileIdx);
+                    out.writeInt(frame.pageId.PageIdx);
                 }
-                frame.reset(); // On vide la frame
+            } catch (IOException e) {
+                System.err.println("[BufferManager] Erreur sauvegarde " + WARM_FILE + " : " + e.getMessage());
             }
+        } finally {
+            unlockAll();
         }
     }
 
     /**
-     * Choisit une frame pour le remplacement selon la politique LRU.
-     * @return La frame choisie, ou null si aucune n'est disponible.
+     * Démarrage à chaud : relit la liste des pages chaudes sauvegardée au dernier Finish et les recharge
+     * en tâche de fond, triées dans l'ordre du disque (lectures séquentielles). Seules les frames libres
+     * sont utilisées : les pages déjà chargées par les premières requêtes ne sont jamais évincées.
+     * Les pages sont ensuite re-touchées de la plus froide à la plus chaude pour que la politique
+     * retrouve leur ordre d'accès.
+     * @return Le nombre de pages à précharger (0 si rien à faire).
+     */
+    public int WarmUp() {
+        if (!dbConfig.bm_warmstart || warmupThread != null) {
+            return 0;
+        }
+        File warmFile = new File(dbConfig.dbpath + File.separator + WARM_FILE);
+        if (!warmFile.exists()) {
+            return 0;
+        }
+        List<PageId> ranked = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(warmFile)))) {
+            int count = in.readInt();
+            for (int i = 0; i < count && ranked.size() < bufferPool.length; i++) {
+                PageId pageId = new PageId(in.readInt(), in.readInt());
+                if (diskManager.IsAllocated(pageId)) { // Page d'une table supprimée depuis : ignorée
+                    ranked.add(pageId);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[BufferManager] Erreur lecture " + WARM_FILE + " : " + e.getMessage());
+            return 0;
+        }
+        if (ranked.isEmpty()) {
+            return 0;
+        }
+
+        List<PageId> byOffset = new ArrayList<>(ranked);
+        byOffset.sort(null);
+        warmupDone = new CountDownLatch(1);
+        warmupRunning = true;
+        warmupThread = new Thread(() -> {
+            long start = System.nanoTime();
+            int loaded = 0;
+            try {
+                for (PageId pageId : byOffset) {
+                    if (!warmupRunning) {
+                        break;
+                    }
+                    int result = prefetchPage(pageId);
+                    if (result < 0) {
+                        break; // Plus de frame libre : le pool est déjà rempli par les requêtes
+                    }
+                    loaded += result;
+                }
+                for (int rank = ranked.size() - 1; rank >= 0 && warmupRunning; rank--) {
+                    touchPage(ranked.get(rank));
+                }
+            } finally {
+                warmupPages = loaded;
+                warmupNanos = System.nanoTime() - start;
+                warmupDone.countDown();
+            }
+        }, "BufferManager-warmup");
+        warmupThread.setDaemon(true);
+        warmupThread.start();
+        return ranked.size();
+    }
+
+    /**
+     * Charge une page dans une frame libre sans l'épingler.
+     * La frame est retirée de freeFrames sous policyLock : si les requêtes ont pris la dernière
+     * entre-temps, on abandonne au lieu de passer par la politique (le préchauffage n'évince jamais).
+     * @return 1 si elle a été lue, 0 si elle était déjà en mémoire, -1 s'il n'y a plus de frame libre.
      */
-    private Frame pickVictim() {
-        // 1. D'abord, on cherche une frame VRAIMENT vide
-        for (Frame frame : bufferPool) {
-            if (frame.isEmpty()) return frame;
+    private int prefetchPage(PageId pageId) {
+        if (isResident(pageId)) {
+            return 0;
+        }
+        Integer free;
+        policyLock.lock();
+        try {
+            free = freeFrames.poll();
+        } finally {
+            policyLock.unlock();
+        }
+        if (free == null) {
+            return -1;
         }
+        int result = claimFrame(free, pageId, WARMUP_OWNER);
+        if (result != CLAIMED) {
+            return 0; // Page chargée entre-temps par une requête (la frame a été rendue) ou frame retirée par un resize
+        }
+        unpin(free, pageId, false);
+        return 1;
+    }
 
-        // 2. Sinon, on cherche une victime parmi celles avec pin_count == 0
-        Frame bestVictim = null;
-        
-        // LRU : On cherche le plus PETIT lastUsed
-        // MRU : On cherche le plus GRAND lastUsed
-        long bestTime = ("LRU".equals(currentPolicy)) ? Long.MAX_VALUE : -1;
+    /**
+     * @return Le nombre de pages à lire d'avance pour un parcours : bm_readahead, limité à la moitié
+     * de l'anneau pour que les pages lues d'avance ne soient pas recyclées avant d'être utilisées.
+     */
+    public int getReadAheadDepth(BufferRing ring) {
+        int depth = Math.max(0, dbConfig.bm_readahead);
+        if (ring != null) {
+            depth = Math.min(depth, ring.getCapacity() / 2);
+        }
+        return depth;
+    }
 
-        for (Frame frame : bufferPool) {
-            if (frame.pinCount == 0) {
-                if ("LRU".equals(currentPolicy)) {
-                    // Logique LRU (Le plus ancien)
-                    if (frame.lastUsed < bestTime) {
-                        bestTime = frame.lastUsed;
-                        bestVictim = frame;
+    /**
+     * Lecture anticipée : charge ces pages en tâche de fond (dans l'anneau donné s'il y en a un),
+     * sans les épingler. Un GetPage ultérieur les trouve en mémoire, ou attend la fin de leur lecture.
+     * Ne bloque jamais l'appelant ; une page qui ne trouve pas de frame disponible est simplement ignorée.
+     */
+    public void Prefetch(List<PageId> pageIds, BufferRing ring, String owner) {
+        if (pageIds.isEmpty()) {
+            return;
+        }
+        List<PageId> pages = new ArrayList<>(pageIds);
+        readAheadExecutor().execute(() -> {
+            for (PageId pageId : pages) {
+                if (!isResident(pageId)) {
+                    Frame frame = load(pageId, ring, owner);
+                    if (frame == null) {
+                        return; // Pool saturé : on n'insiste pas
                     }
+                    unpin(frame.index, pageId, false);
+                    prefetchedPages.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Attend que toutes les lectures anticipées déjà demandées soient terminées.
+     * @return false si le délai est écoulé.
+     */
+    public boolean AwaitReadAhead(long timeoutMillis) {
+        Future<?> marker = readAheadExecutor().submit(() -> { });
+        try {
+            marker.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Le nombre de pages chargées par la lecture anticipée.
+     */
+    public long getPrefetchedPages() {
+        return prefetchedPages.get();
+    }
+
+    private synchronized ExecutorService readAheadExecutor() {
+        if (readAhead == null) {
+            readAhead = Executors.newSingleThreadExecutor(task -> {
+                Thread t = new Thread(task, "BufferManager-readahead");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return readAhead;
+    }
+
+    private boolean isResident(PageId pageId) {
+        int part = partitionOf(pageId);
+        partitionLocks[part].lock();
+        try {
+            return partitions[part].containsKey(pageId);
+        } finally {
+            partitionLocks[part].unlock();
+        }
+    }
+
+    // Signale un accès à une page résidente à la politique, sans la compter dans les statistiques
+    private void touchPage(PageId pageId) {
+        Frame frame = pinIfPresent(pageId);
+        if (frame != null) {
+            waitLoaded(frame);
+            unpin(frame.index, pageId, false);
+        }
+    }
+
+    /**
+     * Attend la fin du préchargement lancé par WarmUp.
+     * @return true s'il est terminé (ou s'il n'y en a pas), false si le délai est écoulé.
+     */
+    public boolean AwaitWarmUp(long timeoutMillis) {
+        CountDownLatch done = warmupDone;
+        if (done == null) {
+            return true;
+        }
+        try {
+            return done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return Le nombre de pages rechargées par le dernier WarmUp terminé.
+     */
+    public int getWarmUpPageCount() {
+        return warmupPages;
+    }
+
+    /**
+     * @return La durée (en ms) du dernier WarmUp terminé.
+     */
+    public long getWarmUpMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(warmupNanos);
+    }
+
+    /**
+     * Oublie toutes les pages d'un fichier supprimé (DROP TABLE en mode "un fichier par relation").
+     * Les frames sont vidées SANS écriture disque, puisque le fichier n'existe plus.
+     */
+    public void DiscardFile(int fileIdx) {
+        lockAll();
+        try {
+            for (int i = 0; i < bufferPool.length; i++) {
+                if (!bufferPool[i].isEmpty() && bufferPool[i].pageId.FileIdx == fileIdx) {
+                    emptyFrame(i);
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Vide une frame et la rend à la liste des frames libres (sous lockAll)
+    private void emptyFrame(int frameIdx) {
+        Frame frame = bufferPool[frameIdx];
+        if (frame.ring != null) {
+            frame.ring.remove(frameIdx);
+            frame.ring = null;
+        }
+        partitions[partitionOf(frame.pageId)].remove(frame.pageId);
+        policy.onRemove(frameIdx);
+        markClean(frame);
+        frame.reset();
+        freeFrames.add(frameIdx);
+    }
+
+    /**
+     * Propose une frame pour charger la page : celle d'un anneau, une frame vide ou une victime
+     * de la politique. Elle est retirée du suivi de la politique ; claimFrame vérifie ensuite
+     * sous verrou qu'elle est toujours remplaçable.
+     * @return L'indice de la frame, ou -1 si aucune n'est disponible.
+     */
+    private int chooseFrame(PageId incoming, BufferRing ring) {
+        policyLock.lock();
+        try {
+            return (ring != null) ? pickRingFrame(ring, incoming) : pickVictim(incoming);
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Choisit une frame pour le remplacement : une frame vide si possible, sinon la victime
+     * désignée par la politique (sans parcourir tout le pool).
+     * @return L'indice de la frame choisie, ou -1 si aucune n'est disponible.
+     */
+    private int pickVictim(PageId incoming) {
+        // 1. D'abord, on prend une frame VRAIMENT vide
+        Integer free = freeFrames.poll();
+        if (free != null) return free;
+
+        // 2. Sinon, la politique choisit parmi celles avec pin_count == 0
+        return policy.pickVictim(incoming);
+    }
+
+    /**
+     * Choisit la frame d'un anneau : tant qu'il n'est pas plein, il prend une frame au pool partagé ;
+     * ensuite il recycle ses propres frames, dans l'ordre.
+     * @return L'indice de la frame choisie, ou -1 si aucune n'est disponible.
+     */
+    private int pickRingFrame(BufferRing ring, PageId incoming) {
+        if (ring.isReleased()) {
+            return pickVictim(incoming); // Lecture anticipée arrivée après ReleaseRing
+        }
+        if (!ring.isFull()) {
+            int frameIdx = pickVictim(incoming);
+            if (frameIdx != -1) {
+                ring.add(frameIdx);
+                bufferPool[frameIdx].ring = ring;
+            }
+            return frameIdx;
+        }
+        for (int i = 0; i < ring.size(); i++) {
+            int frameIdx = ring.nextFrame();
+            if (bufferPool[frameIdx].pinCount.get() == 0) {
+                return frameIdx;
+            }
+        }
+        // Tout l'anneau est épinglé : on passe exceptionnellement par le pool partagé
+        return pickVictim(incoming);
+    }
+
+    /**
+     * Crée un anneau pour un parcours, un DELETE/UPDATE ou un import en masse.
+     * Sa taille est bm_ringsize, sans dépasser le quart du pool.
+     * Un anneau appartient au thread qui l'a créé.
+     * @return L'anneau, ou null si les anneaux sont désactivés (bm_ringsize <= 0).
+     */
+    public BufferRing NewRing() {
+        if (dbConfig.bm_ringsize <= 0) {
+            return null;
+        }
+        return new BufferRing(Math.max(1, Math.min(dbConfig.bm_ringsize, bufferPool.length / 4)));
+    }
+
+    /**
+     * Rend les frames d'un anneau au pool partagé. Les pages encore présentes restent en cache
+     * (au plus la taille de l'anneau) et passent sous le contrôle de la politique de remplacement.
+     */
+    public void ReleaseRing(BufferRing ring) {
+        if (ring == null) {
+            return;
+        }
+        lockAll();
+        try {
+            ring.markReleased();
+            for (int frameIdx : ring.getFrames()) {
+                Frame frame = bufferPool[frameIdx];
+                frame.ring = null;
+                if (frame.isEmpty()) {
+                    freeFrames.add(frameIdx);
                 } else {
-                    // Logique MRU (Le plus récent)
-                    if (frame.lastUsed > bestTime) {
-                        bestTime = frame.lastUsed;
-                        bestVictim = frame;
+                    policy.onLoad(frameIdx, frame.pageId);
+                    if (frame.pinCount.get() == 0) {
+                        policy.onUnpin(frameIdx, frame.pageId);
                     }
                 }
             }
+            ring.getFrames().clear();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Crée la politique de remplacement correspondant au nom donné.
+     * @return La politique, ou null si le nom est inconnu.
+     */
+    private IReplacementPolicy createPolicy(String name) {
+        switch (String.valueOf(name).toUpperCase()) {
+            case "LRU": return new LRUPolicy(bufferPool.length, false);
+            case "MRU": return new LRUPolicy(bufferPool.length, true);
+            case "CLOCK": return new ClockPolicy(bufferPool.length);
+            case "2Q":  return new TwoQPolicy(bufferPool.length);
+            case "ARC": return new ARCPolicy(bufferPool.length);
+            default:    return null;
         }
-        
-        return bestVictim;
     }
+
     /**
      * Modifie dynamiquement la politique de remplacement de page.
-     * Cette méthode permet de passer de LRU à MRU (et inversement) en cours d'exécution.
-     * * @param policy La nouvelle politique à appliquer. Valeurs acceptées : "LRU" ou "MRU".
+     * Cette méthode permet de passer de LRU à MRU, CLOCK, 2Q ou ARC (et inversement) en cours d'exécution.
+     * * @param policy La nouvelle politique à appliquer. Valeurs acceptées : "LRU", "MRU", "CLOCK", "2Q" ou "ARC".
      * Si la valeur est incorrecte, la politique actuelle reste inchangée.
      */
     public void SetCurrentReplacementPolicy(String policy) {
-        if ("LRU".equals(policy) || "MRU".equals(policy)) {
-            this.currentPolicy = policy;
-        } else {
-            System.err.println("Politique inconnue : " + policy + ". On garde " + this.currentPolicy);
+        lockAll();
+        try {
+            if (("LRU".equals(policy) || "MRU".equals(policy)) && this.policy instanceof LRUPolicy) {
+                // Même famille : on garde l'historique des accès
+                ((LRUPolicy) this.policy).setMRU("MRU".equals(policy));
+                this.currentPolicy = policy;
+                return;
+            }
+
+            IReplacementPolicy newPolicy = createPolicy(policy);
+            if (newPolicy == null) {
+                System.err.println("Politique inconnue : " + policy + ". On garde " + this.currentPolicy);
+                return;
+            }
+            installPolicy(newPolicy);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Remplace la politique (sous lockAll) en lui déclarant les pages déjà en mémoire
+    private void installPolicy(IReplacementPolicy newPolicy) {
+        for (int i = 0; i < bufferPool.length; i++) {
+            Frame frame = bufferPool[i];
+            if (!frame.isEmpty() && frame.ring == null) {
+                newPolicy.onLoad(i, frame.pageId);
+                if (frame.pinCount.get() == 0) {
+                    newPolicy.onUnpin(i, frame.pageId);
+                }
+            }
+        }
+        this.policy = newPolicy;
+        this.currentPolicy = newPolicy.getName();
+    }
+
+    /**
+     * Change à chaud le nombre de frames du pool.
+     * Agrandir ajoute des frames vides. Réduire retire les dernières frames : leurs pages sales sont
+     * écrites en un lot puis les pages sont évincées ; c'est refusé si l'une d'elles est épinglée.
+     * La politique de remplacement est reconstruite pour la nouvelle taille (l'historique d'accès repart de zéro).
+     * @return true si le pool a la nouvelle taille.
+     */
+    public boolean resize(int newCount) {
+        if (newCount < 1) {
+            System.err.println("[BufferManager] Taille de pool invalide : " + newCount);
+            return false;
+        }
+        lockAll();
+        try {
+            int oldCount = bufferPool.length;
+            if (newCount == oldCount) {
+                return true;
+            }
+            if (newCount < oldCount) {
+                for (int i = newCount; i < oldCount; i++) {
+                    if (bufferPool[i].pinCount.get() > 0) {
+                        System.err.println("[BufferManager] Réduction impossible : la frame " + i + " ("
+                                + bufferPool[i].pageId + ") est épinglée.");
+                        return false;
+                    }
+                }
+                writeDirtyFrames(newCount);
+                for (int i = newCount; i < oldCount; i++) {
+                    if (!bufferPool[i].isEmpty()) {
+                        emptyFrame(i);
+                    }
+                }
+                freeFrames.removeIf(idx -> idx >= newCount);
+            }
+
+            Frame[] newPool = Arrays.copyOf(bufferPool, newCount);
+            if (newCount > oldCount) {
+                createFrames(newPool, oldCount);
+                for (int i = oldCount; i < newCount; i++) {
+                    freeFrames.add(i);
+                }
+            }
+            this.bufferPool = newPool;
+            this.dbConfig.bm_buffercount = newCount;
+            installPolicy(createPolicy(currentPolicy));
+            return true;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * @return Le nombre de frames du pool.
+     */
+    public int getFrameCount() {
+        return this.bufferPool.length;
+    }
+
+    /**
+     * @return Le nom de la politique de remplacement courante.
+     */
+    public String getCurrentReplacementPolicy() {
+        return this.currentPolicy;
+    }
+
+    /**
+     * @return Le nombre d'appels à GetPage servis depuis la mémoire.
+     */
+    public long getHitCount() {
+        return this.totalStats.getHits();
+    }
+
+    /**
+     * @return Le nombre d'appels à GetPage qui ont demandé une lecture disque.
+     */
+    public long getMissCount() {
+        return this.totalStats.getMisses();
+    }
+
+    /**
+     * @return Le nombre de frames sales en ce moment.
+     */
+    public int getDirtyCount() {
+        return this.dirtyCount.get();
+    }
+
+    /**
+     * @return Le nombre de frames actuellement épinglées (photo instantanée, sans verrou).
+     */
+    public int getPinnedCount() {
+        int pinned = 0;
+        for (Frame frame : this.bufferPool) {
+            if (frame.pinCount.get() > 0) {
+                pinned++;
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * @return Le nombre de pages écrites par le writer de fond depuis le démarrage.
+     */
+    public long getBgWrittenPages() {
+        return this.bgWrittenPages.get();
+    }
+
+    /**
+     * @return Le nombre de défauts de page qui ont dû attendre qu'une frame se libère.
+     */
+    public long getPinWaitCount() {
+        return this.totalStats.getPinWaits();
+    }
+
+    /**
+     * @return Le temps total (en ms) passé à attendre une frame.
+     */
+    public long getPinWaitMillis() {
+        return this.totalStats.getPinWaitMillis();
+    }
+
+    /**
+     * @return Le nombre d'attentes abandonnées après bm_pinwaittimeout ms (GetPage a renvoyé null).
+     */
+    public long getPinTimeoutCount() {
+        return this.totalStats.getPinTimeouts();
+    }
+
+    /**
+     * @return Les compteurs de tout le pool depuis le démarrage.
+     */
+    public BufferStats getStats() {
+        return this.totalStats;
+    }
+
+    /**
+     * @return Les compteurs d'une relation (null si elle n'a demandé aucune page).
+     */
+    public BufferStats getRelationStats(String relation) {
+        return this.relationStats.get(relation);
+    }
+
+    /**
+     * @return Les compteurs accumulés pendant que la politique donnée était active (null si jamais utilisée).
+     */
+    public BufferStats getPolicyStats(String policy) {
+        return this.policyStats.get(policy);
+    }
+
+    /**
+     * Rapport lisible des statistiques du pool : total, puis par politique et par relation.
+     * Latences en µs (moyenne et 99e percentile, à la puissance de 2 près).
+     */
+    public String GetStatsReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Buffer pool : %d frames, politique %s, %d frame(s) sale(s), %d page(s) écrite(s) par le writer de fond%n",
+                bufferPool.length, currentPolicy, dirtyCount.get(), bgWrittenPages.get()));
+        if (warmupDone != null) {
+            sb.append(warmupDone.getCount() == 0
+                    ? String.format("Préchauffage : %d page(s) rechargée(s) en %d ms%n", warmupPages, getWarmUpMillis())
+                    : String.format("Préchauffage : en cours%n"));
+        }
+        sb.append(String.format("  %-20s %9s %9s %6s %9s %7s %8s %9s %9s %9s %9s%n", "Portée", "Hits", "Misses", "Hit%",
+                "Évictions", "Sales", "Attentes", "Lect.moy", "Lect.p99", "Écr.moy", "Écr.p99"));
+        appendStatsLine(sb, "TOTAL", totalStats);
+        for (String name : new TreeSet<>(policyStats.keySet())) {
+            appendStatsLine(sb, "politique " + name, policyStats.get(name));
+        }
+        for (String name : new TreeSet<>(relationStats.keySet())) {
+            appendStatsLine(sb, name, relationStats.get(name));
+        }
+        return sb.toString();
+    }
+
+    private static void appendStatsLine(StringBuilder sb, String scope, BufferStats stats) {
+        sb.append(String.format("  %-20s %9d %9d %5.1f%% %9d %7d %8d %9.1f %9d %9.1f %9d%n", scope,
+                stats.getHits(), stats.getMisses(), 100 * stats.getHitRatio(), stats.getEvictions(),
+                stats.getDirtyEvictions(), stats.getPinWaits(), stats.getReadMeanMicros(),
+                stats.getReadPercentileMicros(99), stats.getWriteMeanMicros(), stats.getWritePercentileMicros(99)));
+    }
+
+    // --- VERROUS ---
+
+    private int partitionOf(PageId pageId) {
+        return Math.floorMod(pageId.hashCode(), PARTITION_COUNT);
+    }
+
+    // Verrouille deux partitions dans l'ordre croissant (une seule si elles sont égales)
+    private void lockPartitions(int a, int b) {
+        partitionLocks[Math.min(a, b)].lock();
+        if (a != b) {
+            partitionLocks[Math.max(a, b)].lock();
+        }
+    }
+
+    private void unlockPartitions(int a, int b) {
+        if (a != b) {
+            partitionLocks[Math.max(a, b)].unlock();
+        }
+        partitionLocks[Math.min(a, b)].unlock();
+    }
+
+    // Verrouille tout le pool (opérations globales : flush, DROP, changement de politique)
+    private void lockAll() {
+        for (ReentrantLock lock : partitionLocks) {
+            lock.lock();
+        }
+        policyLock.lock();
+    }
+
+    private void unlockAll() {
+        policyLock.unlock();
+        for (int i = PARTITION_COUNT - 1; i >= 0; i--) {
+            partitionLocks[i].unlock();
         }
+        signalFrameReleased(); // Vidage, anneau rendu ou changement de politique : des frames ont pu se libérer
     }
-}
\ No newline at end of file
+}
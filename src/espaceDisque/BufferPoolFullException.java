@@ -0,0 +1,26 @@
+package espaceDisque;
+
+/**
+ * Levée par BufferManager.PinPage quand aucune frame ne s'est libérée pendant bm_pinwaittimeout ms
+ * (toutes les frames du pool sont épinglées). La requête en cours échoue proprement au lieu de
+ * continuer avec une page absente ; les pages qu'elle avait épinglées sont rendues par leurs handles.
+ */
+public class BufferPoolFullException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PageId pageId;
+
+    public BufferPoolFullException(PageId pageId, int frameCount, long timeoutMillis) {
+        super("Buffer pool saturé : les " + frameCount + " frames sont épinglées, aucune libérée en "
+                + timeoutMillis + " ms pour charger la page " + pageId);
+        this.pageId = pageId;
+    }
+
+    /**
+     * @return La page qui n'a pas pu être chargée.
+     */
+    public PageId getPageId() {
+        return pageId;
+    }
+}
@@ -0,0 +1,78 @@
+package espaceDisque;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Anneau de frames privé pour les accès en masse (parcours, DELETE/UPDATE, APPEND),
+ * sur le modèle des "buffer rings" de PostgreSQL.
+ * Les pages chargées via GetPage(pageId, ring) recyclent toujours les mêmes frames au lieu
+ * de pousser hors du pool les pages utiles des autres requêtes.
+ * Un anneau s'obtient avec BufferManager.NewRing() et se rend avec ReleaseRing().
+ * Ses frames ne sont manipulées que sous le policyLock du BufferManager (le thread de lecture
+ * anticipée peut aussi y charger des pages).
+ */
+public class BufferRing {
+
+    private int capacity;        // Nombre maximal de frames de l'anneau
+    private List<Integer> frames; // Indices des frames possédées (dans l'ordre de recyclage)
+    private int next;            // Prochaine frame à recycler
+    private volatile boolean released; // Rendu par ReleaseRing : les chargements tardifs vont au pool partagé
+
+    BufferRing(int capacity) {
+        this.capacity = capacity;
+        this.frames = new ArrayList<>(capacity);
+        this.next = 0;
+    }
+
+    /**
+     * @return Le nombre maximal de frames de l'anneau.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Le nombre de frames actuellement possédées par l'anneau.
+     */
+    public int size() {
+        return frames.size();
+    }
+
+    boolean isReleased() {
+        return released;
+    }
+
+    void markReleased() {
+        this.released = true;
+    }
+
+    boolean isFull() {
+        return frames.size() >= capacity;
+    }
+
+    void add(int frameIdx) {
+        frames.add(frameIdx);
+    }
+
+    void remove(int frameIdx) {
+        int pos = frames.indexOf(frameIdx);
+        if (pos == -1) return;
+        frames.remove(pos);
+        if (pos < next) next--;
+        if (next >= frames.size()) next = 0;
+    }
+
+    /**
+     * Donne la frame suivante dans l'ordre de recyclage et avance le curseur.
+     */
+    int nextFrame() {
+        int frameIdx = frames.get(next);
+        next = (next + 1) % frames.size();
+        return frameIdx;
+    }
+
+    List<Integer> getFrames() {
+        return frames;
+    }
+}
@@ -0,0 +1,169 @@
+package espaceDisque;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs du BufferManager pour une portée donnée (tout le pool, une politique ou une relation).
+ * Les latences d'E/S sont rangées dans un histogramme à seaux de puissances de 2 (en µs) :
+ * le seau b compte les E/S de durée comprise entre 2^b et 2^(b+1) µs.
+ * Tous les compteurs sont thread-safe et ne prennent aucun verrou.
+ */
+public class BufferStats {
+
+    private static final int BUCKETS = 24; // Jusqu'à 2^24 µs (~17 s), le dernier seau prend le reste
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder dirtyEvictions = new LongAdder();
+    private final LongAdder pinWaits = new LongAdder();
+    private final LongAdder pinWaitNanos = new LongAdder();
+    private final LongAdder pinTimeouts = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final AtomicLongArray readHistogram = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray writeHistogram = new AtomicLongArray(BUCKETS);
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordEviction(boolean dirty) {
+        evictions.increment();
+        if (dirty) {
+            dirtyEvictions.increment();
+        }
+    }
+
+    void recordPinWait(long nanos, boolean timedOut) {
+        pinWaits.increment();
+        pinWaitNanos.add(nanos);
+        if (timedOut) {
+            pinTimeouts.increment();
+        }
+    }
+
+    void recordRead(long nanos) {
+        readNanos.add(nanos);
+        readHistogram.incrementAndGet(bucketOf(nanos));
+    }
+
+    void recordWrite(long nanos) {
+        writeNanos.add(nanos);
+        writeHistogram.incrementAndGet(bucketOf(nanos));
+    }
+
+    private static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 63 - Long.numberOfLeadingZeros(Math.max(1, micros));
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return La proportion de demandes servies depuis la mémoire (0 si aucune demande).
+     */
+    public double getHitRatio() {
+        long h = getHits();
+        long total = h + getMisses();
+        return (total == 0) ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return Le nombre de pages évincées du pool pour en charger une autre.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Parmi les évictions, celles d'une page sale (écrite sur le disque avant d'être remplacée).
+     */
+    public long getDirtyEvictions() {
+        return dirtyEvictions.sum();
+    }
+
+    public long getPinWaits() {
+        return pinWaits.sum();
+    }
+
+    public long getPinWaitMillis() {
+        return pinWaitNanos.sum() / 1_000_000;
+    }
+
+    public long getPinTimeouts() {
+        return pinTimeouts.sum();
+    }
+
+    /**
+     * @return Le nombre de pages lues sur le disque.
+     */
+    public long getReadCount() {
+        return count(readHistogram);
+    }
+
+    /**
+     * @return Le nombre de pages écrites sur le disque (évictions, writer de fond, checkpoint et flush).
+     */
+    public long getWriteCount() {
+        return count(writeHistogram);
+    }
+
+    public double getReadMeanMicros() {
+        long n = getReadCount();
+        return (n == 0) ? 0 : readNanos.sum() / 1000.0 / n;
+    }
+
+    public double getWriteMeanMicros() {
+        long n = getWriteCount();
+        return (n == 0) ? 0 : writeNanos.sum() / 1000.0 / n;
+    }
+
+    /**
+     * @param percentile Entre 0 et 100 (ex : 99).
+     * @return La borne haute (en µs) du seau qui contient ce percentile des lectures.
+     */
+    public long getReadPercentileMicros(double percentile) {
+        return percentile(readHistogram, percentile);
+    }
+
+    public long getWritePercentileMicros(double percentile) {
+        return percentile(writeHistogram, percentile);
+    }
+
+    private static long count(AtomicLongArray histogram) {
+        long n = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            n += histogram.get(b);
+        }
+        return n;
+    }
+
+    private static long percentile(AtomicLongArray histogram, double percentile) {
+        long n = count(histogram);
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram.get(b);
+            if (seen >= Math.max(1, rank)) {
+                return 1L << (b + 1);
+            }
+        }
+        return 1L << BUCKETS;
+    }
+}
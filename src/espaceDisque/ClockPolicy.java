@@ -0,0 +1,73 @@
+package espaceDisque;
+
+/**
+ * Politique CLOCK (seconde chance).
+ * Chaque frame a un bit de référence mis à 1 à chaque accès ; une aiguille tourne sur le pool
+ * et éjecte la première frame non épinglée dont le bit est à 0, en remettant à 0 les bits
+ * qu'elle croise. Un accès ne fait qu'écrire un booléen : pas de compteur global à mettre à jour,
+ * et l'éviction coûte O(1) en moyenne.
+ */
+public class ClockPolicy implements IReplacementPolicy {
+
+    private boolean[] referenced;  // frame -> bit de référence (seconde chance)
+    private boolean[] evictable;   // frame -> non épinglée et suivie par la politique
+    private int evictableCount;    // Nombre de frames remplaçables
+    private int hand;              // Position de l'aiguille
+
+    public ClockPolicy(int frameCount) {
+        this.referenced = new boolean[frameCount];
+        this.evictable = new boolean[frameCount];
+        this.evictableCount = 0;
+        this.hand = 0;
+    }
+
+    public void onLoad(int frameIdx, PageId pageId) {
+        onRemove(frameIdx);
+        referenced[frameIdx] = true;
+    }
+
+    public void onHit(int frameIdx, PageId pageId) {
+        onLoad(frameIdx, pageId);
+    }
+
+    public void onUnpin(int frameIdx, PageId pageId) {
+        if (!evictable[frameIdx]) {
+            evictable[frameIdx] = true;
+            evictableCount++;
+        }
+    }
+
+    public int pickVictim(PageId incoming) {
+        if (evictableCount == 0) {
+            return -1;
+        }
+        // Au pire deux tours : le premier remet tous les bits à 0, le second trouve la victime
+        for (int step = 0; step < 2 * referenced.length; step++) {
+            int frameIdx = hand;
+            hand = (hand + 1) % referenced.length;
+            if (!evictable[frameIdx]) {
+                continue;
+            }
+            if (referenced[frameIdx]) {
+                referenced[frameIdx] = false; // Seconde chance
+            } else {
+                evictable[frameIdx] = false;
+                evictableCount--;
+                return frameIdx;
+            }
+        }
+        return -1;
+    }
+
+    public void onRemove(int frameIdx) {
+        if (evictable[frameIdx]) {
+            evictable[frameIdx] = false;
+            evictableCount--;
+        }
+        referenced[frameIdx] = false;
+    }
+
+    public String getName() {
+        return "CLOCK";
+    }
+}
@@ -8,7 +8,19 @@ public class DBConfig implements Serializable {
     public int pagesize;
     public int dm_maxfilecount;
     public int bm_buffercount; // Champ ajouté pour le TP3
-    public String bm_policy;   // Champ ajouté pour le TP3
+    public String bm_policy;   // Champ ajouté pour le TP3 : "LRU", "MRU", "CLOCK", "2Q" ou "ARC"
+    public String dm_iomode = "standard"; // Mode d'E/S du DiskManager : "standard", "mmap" ou "direct" (O_DIRECT)
+    public int dm_maxpagesperfile = 262144; // Taille max d'un fichier DataN.bin (en pages, 1 Go avec 4 Ko)
+    public String dm_allocpolicy = "FILL";  // Répartition des pages : "FILL" (fichier par fichier) ou "ROUNDROBIN"
+    public String dm_filemode = "SHARED";   // "SHARED" (tables dans les mêmes fichiers) ou "RELATION" (un fichier par table)
+    public int dm_extentsize = 64;          // Nombre de pages préallouées à chaque agrandissement d'un fichier
+    public int bm_ringsize = 16;            // Frames de l'anneau des parcours/imports en masse (0 = désactivé)
+    public String bm_memory = "heap";       // Mémoire des frames : "heap" (byte[]) ou "offheap" (arène directe)
+    public int bm_bgwriterdelay = 0;        // Période du writer de fond en ms (0 = pas de writer de fond)
+    public double bm_dirtyratio = 0.25;     // Proportion de frames sales au-delà de laquelle le writer de fond écrit
+    public int bm_pinwaittimeout = 5000;    // Attente max (ms) d'une frame quand tout le pool est épinglé (0 = aucune)
+    public boolean bm_warmstart = false;    // Sauvegarde des pages chaudes au Finish et préchargement au démarrage
+    public int bm_readahead = 4;            // Pages lues d'avance pendant un parcours (0 = pas de lecture anticipée)
     
     private static final long serialVersionUID = 1L;
 
@@ -28,6 +40,18 @@ public class DBConfig implements Serializable {
         int maxFiles = 100;
         int buffCount = 100; 
         String policy = "LRU"; 
+        String ioMode = "standard";
+        int maxPagesPerFile = 262144;
+        String allocPolicy = "FILL";
+        String fileMode = "SHARED";
+        int extentSize = 64;
+        int ringSize = 16;
+        String memory = "heap";
+        int bgWriterDelay = 0;
+        double dirtyRatio = 0.25;
+        int pinWaitTimeout = 5000;
+        boolean warmStart = false;
+        int readAhead = 4;
 
         try (BufferedReader br = new BufferedReader(new FileReader(fichier_config))) {
             String line;
@@ -45,6 +69,18 @@ public class DBConfig implements Serializable {
                         case "dm_maxfilecount": maxFiles = Integer.parseInt(value); break;
                         case "bm_buffercount": buffCount = Integer.parseInt(value); break;
                         case "bm_policy": policy = value; break;
+                        case "dm_iomode": ioMode = value; break;
+                        case "dm_maxpagesperfile": maxPagesPerFile = Integer.parseInt(value); break;
+                        case "dm_allocpolicy": allocPolicy = value; break;
+                        case "dm_filemode": fileMode = value; break;
+                        case "dm_extentsize": extentSize = Integer.parseInt(value); break;
+                        case "bm_ringsize": ringSize = Integer.parseInt(value); break;
+                        case "bm_memory": memory = value; break;
+                        case "bm_bgwriterdelay": bgWriterDelay = Integer.parseInt(value); break;
+                        case "bm_dirtyratio": dirtyRatio = Double.parseDouble(value); break;
+                        case "bm_pinwaittimeout": pinWaitTimeout = Integer.parseInt(value); break;
+                        case "bm_warmstart": warmStart = Boolean.parseBoolean(value); break;
+                        case "bm_readahead": readAhead = Integer.parseInt(value); break;
                     }
                 }
             }
@@ -54,6 +90,19 @@ public class DBConfig implements Serializable {
             // Pour le test "Erreur Fichier", on s'attend souvent à null ou une exception gérée.
             // Ici, on renvoie une config par défaut pour ne pas crasher le SGBD.
         }
-        return new DBConfig(path, pSize, maxFiles, buffCount, policy);
+        DBConfig config = new DBConfig(path, pSize, maxFiles, buffCount, policy);
+        config.dm_iomode = ioMode;
+        config.dm_maxpagesperfile = maxPagesPerFile;
+        config.dm_allocpolicy = allocPolicy;
+        config.dm_filemode = fileMode;
+        config.dm_extentsize = extentSize;
+        config.bm_ringsize = ringSize;
+        config.bm_memory = memory;
+        config.bm_bgwriterdelay = bgWriterDelay;
+        config.bm_dirtyratio = dirtyRatio;
+        config.bm_pinwaittimeout = pinWaitTimeout;
+        config.bm_warmstart = warmStart;
+        config.bm_readahead = readAhead;
+        return config;
     }
 }
\ No newline at end of file
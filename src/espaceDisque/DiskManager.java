@@ -1,19 +1,72 @@
 package espaceDisque;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DiskManager {
     private DBConfig dbConfig;
-    private LinkedList<PageId> freePages; // Stocke les pages désallouées pour réutilisation
+    private FreePageMap freePages; // Bitmap des pages désallouées, persistant entre deux sessions
+    private Map<Integer, Integer> usedPages; // fileIdx -> nombre de pages attribuées (le reste de l'extent est libre)
+    private static final String SPACE_MAP_FILE = "spacemap.bin";
+
+    // Statistiques d'allocation
+    private long allocCount;
+    private long allocNanos;
+    private int extentCount;
+
+    // Nombre de requêtes d'E/S émises (une par page, ou une par run contigu en E/S groupée)
+    private AtomicLong readCalls;
+    private AtomicLong writeCalls;
+
+    // Pool de fichiers ouverts : un FileChannel par fichier DataN.bin, gardé ouvert toute la session
+    private Map<Integer, FileChannel> channels;
+    private int openedHandles; // Nombre total d'ouvertures de fichiers (pour les stats)
+
+    // Mode "mmap" : chaque fichier est projeté en mémoire par segments de MMAP_SEGMENT_PAGES pages
+    private static final int MMAP_SEGMENT_PAGES = 16384; // 64 Mo avec des pages de 4 Ko
+    private boolean mmapMode;
+    private Map<Integer, List<MappedByteBuffer>> mappings;
+    private int mappingCount; // Nombre total de projections effectuées (pour les stats)
+
+    // Mode "direct" (O_DIRECT) : on contourne le cache du système, les E/S passent
+    // par un buffer hors tas aligné sur la taille de bloc du disque
+    private boolean directMode; // Décidé une fois pour toutes par Init
+    private int directAlign;
+    private ThreadLocal<ByteBuffer> stagingBuffers; // Un buffer par thread : les E/S peuvent se faire en parallèle
+    private static final int STAGING_MAX_PAGES = 64; // Taille max d'un buffer de transit : les runs plus longs sont découpés
+
+    // Répartition des pages sur les dm_maxfilecount fichiers
+    private int currentFile; // Politique FILL : fichier en cours de remplissage
+    private int nextFile;    // Politique ROUNDROBIN : prochain fichier à utiliser
 
     public DiskManager(DBConfig dbConfig) {
         this.dbConfig = dbConfig;
-        this.freePages = new LinkedList<>();
+        this.freePages = new FreePageMap();
+        this.usedPages = new HashMap<>();
+        this.channels = new HashMap<>();
+        this.openedHandles = 0;
+        this.mmapMode = "mmap".equalsIgnoreCase(dbConfig.dm_iomode);
+        this.mappings = new HashMap<>();
+        this.directMode = "direct".equalsIgnoreCase(dbConfig.dm_iomode);
+        this.directAlign = 4096;
+        this.stagingBuffers = new ThreadLocal<>();
+        this.readCalls = new AtomicLong();
+        this.writeCalls = new AtomicLong();
+        this.currentFile = 0;
+        this.nextFile = 0;
     }
 
     /**
-     * Initialise le système de fichiers (crée le dossier BinData si besoin).
+     * Initialise le système de fichiers (crée le dossier BinData si besoin)
+     * et recharge la carte des pages libres de la session précédente.
      */
     public void Init() {
         File dir = new File(dbConfig.dbpath);
@@ -23,55 +76,380 @@ public class DiskManager {
                 System.out.println("   [Info] Dossier " + dbConfig.dbpath + " créé.");
             }
         }
+
+        if (directMode) {
+            try {
+                directAlign = (int) Files.getFileStore(dir.toPath()).getBlockSize();
+            } catch (IOException e) {
+                System.err.println("Info: taille de bloc inconnue (" + e.getMessage() + "), alignement sur 4096");
+            }
+            if (dbConfig.pagesize % directAlign != 0) {
+                System.err.println("Info: pagesize (" + dbConfig.pagesize + ") non multiple du bloc disque ("
+                        + directAlign + "), mode direct désactivé");
+                directMode = false;
+            }
+        }
+        if (directMode) {
+            directMode = probeDirectIO(dir);
+        }
+
+        File spaceMapFile = new File(dbConfig.dbpath + File.separator + SPACE_MAP_FILE);
+        if (spaceMapFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spaceMapFile)))) {
+                this.freePages = FreePageMap.load(in);
+                int nbFiles = in.readInt();
+                for (int i = 0; i < nbFiles; i++) {
+                    usedPages.put(in.readInt(), in.readInt());
+                }
+            } catch (IOException e) {
+                System.err.println("Erreur chargement " + SPACE_MAP_FILE + " : " + e.getMessage());
+                this.freePages = new FreePageMap();
+                this.usedPages.clear();
+            }
+            // La carte n'est valable que jusqu'à la prochaine allocation : on la supprime,
+            // Finish() la réécrira. Après un arrêt brutal, les pages libres et la fin des extents
+            // sont perdues (simple fuite) mais jamais attribuées deux fois.
+            spaceMapFile.delete();
+        }
+    }
+
+    /**
+     * Mode direct : vérifie, avant l'ouverture du moindre fichier de données, que le système de fichiers
+     * accepte O_DIRECT. Le mode est ainsi décidé une fois pour toutes : aucun channel n'est ouvert en DIRECT
+     * puis utilisé sans buffer aligné. Seul un refus d'O_DIRECT (option non supportée, ou EINVAL à l'ouverture)
+     * fait repasser en E/S classiques ; les autres erreurs seront signalées par les E/S elles-mêmes.
+     * @return false si O_DIRECT n'est pas disponible dans ce dossier.
+     */
+    private boolean probeDirectIO(File dir) {
+        File probe = new File(dir, ".direct_probe");
+        try {
+            FileChannel.open(probe.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, com.sun.nio.file.ExtendedOpenOption.DIRECT).close();
+            return true;
+        } catch (UnsupportedOperationException e) {
+            System.err.println("Info: O_DIRECT non supporté (" + e.getMessage() + "), mode standard utilisé");
+            return false;
+        } catch (FileSystemException e) {
+            if ("Invalid argument".equals(e.getReason())) { // EINVAL : système de fichiers sans O_DIRECT
+                System.err.println("Info: O_DIRECT refusé par le système de fichiers, mode standard utilisé");
+                return false;
+            }
+            System.err.println("Erreur test O_DIRECT : " + e.getMessage());
+            return true;
+        } catch (IOException e) {
+            System.err.println("Erreur test O_DIRECT : " + e.getMessage());
+            return true;
+        } finally {
+            probe.delete();
+        }
+    }
+
+    /**
+     * Renvoie le FileChannel du fichier DataN.bin (ouvert une seule fois, puis réutilisé).
+     * Les lectures/écritures positionnelles sur le channel se font ensuite hors de tout verrou.
+     * Le fichier doit exister : seuls AllocPage et AllocFile créent des fichiers.
+     */
+    private FileChannel getChannel(int fileId) throws IOException {
+        return getChannel(fileId, false);
+    }
+
+    /**
+     * @param create true pour créer le fichier s'il n'existe pas (AllocPage / AllocFile) ;
+     * sinon une E/S sur un fichier inconnu échoue au lieu de créer un DataN.bin vide.
+     */
+    private synchronized FileChannel getChannel(int fileId, boolean create) throws IOException {
+        FileChannel channel = channels.get(fileId);
+        if (channel == null || !channel.isOpen()) {
+            File f = dataFile(fileId);
+            if (!create && !f.exists()) {
+                throw new FileNotFoundException("Fichier " + f.getName() + " inexistant (page jamais allouée)");
+            }
+            List<OpenOption> options = new ArrayList<>(Arrays.asList(StandardOpenOption.READ, StandardOpenOption.WRITE));
+            if (create) {
+                options.add(StandardOpenOption.CREATE);
+            }
+            if (directMode) {
+                options.add(com.sun.nio.file.ExtendedOpenOption.DIRECT); // Disponibilité vérifiée par Init
+            }
+            channel = FileChannel.open(f.toPath(), options.toArray(new OpenOption[0]));
+            channels.put(fileId, channel);
+            openedHandles++;
+        }
+        return channel;
+    }
+
+    /**
+     * Mode mmap : renvoie le segment projeté qui contient la page.
+     * Un segment (MMAP_SEGMENT_PAGES pages au plus) n'est projeté que jusqu'à la fin actuelle du fichier :
+     * FileChannel.map agrandirait sinon le fichier à la taille du segment dès le premier accès.
+     * Quand une page de l'extent suivant est demandée, le segment est reprojeté jusqu'à la nouvelle fin
+     * du fichier : une projection par agrandissement (dm_extentsize pages), pas une par page.
+     * Une page au-delà de la fin du fichier reste une erreur.
+     */
+    private synchronized MappedByteBuffer getSegment(PageId pageId) throws IOException {
+        int segIdx = pageId.PageIdx / MMAP_SEGMENT_PAGES;
+
+        List<MappedByteBuffer> segments = mappings.computeIfAbsent(pageId.FileIdx, k -> new ArrayList<>());
+        while (segments.size() <= segIdx) {
+            segments.add(null);
+        }
+
+        MappedByteBuffer segment = segments.get(segIdx);
+        long segStart = (long) segIdx * MMAP_SEGMENT_PAGES;
+        long needed = (pageId.PageIdx - segStart + 1) * dbConfig.pagesize;
+        if (segment == null || segment.capacity() < needed) {
+            long pageCount = getPageCount(pageId.FileIdx);
+            if (pageId.PageIdx >= pageCount) {
+                throw new EOFException("Page " + pageId + " hors du fichier");
+            }
+            long segPages = Math.min(MMAP_SEGMENT_PAGES, pageCount - segStart);
+            if (segment != null) {
+                segment.force(); // L'ancienne projection n'est plus utilisée (elle partage les mêmes pages du fichier)
+            }
+            segment = getChannel(pageId.FileIdx).map(FileChannel.MapMode.READ_WRITE,
+                    segStart * dbConfig.pagesize, segPages * dbConfig.pagesize);
+            segments.set(segIdx, segment);
+            mappingCount++;
+        }
+        return segment;
     }
 
     /**
      * Alloue une page (réutilise une libre ou en crée une nouvelle).
      * @return Le PageId de la page allouée.
      */
-    public PageId AllocPage() {
-        // 1. Priorité : Réutiliser une page libérée
-        if (!freePages.isEmpty()) {
-            return freePages.pop();
+    public synchronized PageId AllocPage() {
+        long t0 = System.nanoTime();
+        try {
+            // 1. Priorité : Réutiliser une page libérée
+            PageId recycled = freePages.takeAnyFree();
+            if (recycled != null) {
+                return recycled;
+            }
+
+            // 2. Sinon : Prendre la page suivante d'un fichier qui a encore de la place
+            int fileId = chooseFile();
+            if (fileId == -1) {
+                System.err.println("Erreur AllocPage: les " + dbConfig.dm_maxfilecount
+                        + " fichiers de données sont pleins (" + dbConfig.dm_maxpagesperfile + " pages max par fichier)");
+                return null;
+            }
+            return appendPage(fileId);
+
+        } catch (IOException e) {
+            System.err.println("Erreur AllocPage: " + e.getMessage());
+            return null;
+        } finally {
+            allocCount++;
+            allocNanos += System.nanoTime() - t0;
         }
+    }
 
-        // 2. Sinon : Créer une nouvelle page à la fin du fichier courant
-        // (Simplification : on utilise le fichier 0 pour l'instant)
-        int fileId = 0; 
-        int pageIdx = 0;
-        
+    /**
+     * Mode "un fichier par relation" : alloue une page dans le fichier donné.
+     * @param fileId Le fichier (segment) de la relation.
+     * @return Le PageId de la page allouée, ou null en cas d'erreur.
+     */
+    public synchronized PageId AllocPage(int fileId) {
+        long t0 = System.nanoTime();
         try {
-            File f = new File(dbConfig.dbpath + File.separator + "Data" + fileId + ".bin");
-            RandomAccessFile raf = new RandomAccessFile(f, "rw");
-            
-            // Calcul de l'index de la nouvelle page
-            long length = raf.length();
-            pageIdx = (int) (length / dbConfig.pagesize);
-            
-            // On agrandit le fichier pour "réserver" la place
-            raf.setLength(length + dbConfig.pagesize);
-            raf.close();
-            
+            // 1. Réutiliser une page libérée de ce fichier
+            PageId recycled = freePages.takeFree(fileId);
+            if (recycled != null) {
+                return recycled;
+            }
+
+            // 2. Sinon : page suivante du fichier de la relation
+            if (getUsedPages(fileId) >= dbConfig.dm_maxpagesperfile) {
+                System.err.println("Erreur AllocPage: le fichier Data" + fileId + ".bin est plein");
+                return null;
+            }
+            return appendPage(fileId);
+
         } catch (IOException e) {
             System.err.println("Erreur AllocPage: " + e.getMessage());
             return null;
+        } finally {
+            allocCount++;
+            allocNanos += System.nanoTime() - t0;
+        }
+    }
+
+    /**
+     * Donne la première page jamais utilisée du fichier.
+     * Quand l'extent courant est épuisé, le fichier est agrandi de dm_extentsize pages
+     * en UNE seule écriture : les pages suivantes sont servies sans E/S et restent contiguës.
+     */
+    private PageId appendPage(int fileId) throws IOException {
+        int pageIdx = getUsedPages(fileId);
+
+        if (pageIdx >= getPageCount(fileId)) {
+            int extentEnd = Math.min(pageIdx + Math.max(1, dbConfig.dm_extentsize), dbConfig.dm_maxpagesperfile);
+            // On écrit réellement les zéros (pas de fichier "creux") pour que le système réserve des blocs contigus
+            int size = (extentEnd - pageIdx) * dbConfig.pagesize;
+            ByteBuffer zeros = directMode ? alignedBuffer(size) : ByteBuffer.allocate(size);
+            writeFully(getChannel(fileId, true), zeros, (long) pageIdx * dbConfig.pagesize);
+            extentCount++;
         }
 
+        usedPages.put(fileId, pageIdx + 1);
         return new PageId(fileId, pageIdx);
     }
 
+    /**
+     * Réserve un nouveau fichier de données (vide) pour une relation.
+     * @return L'index du fichier créé, ou -1 si les dm_maxfilecount fichiers existent déjà.
+     */
+    public synchronized int AllocFile() {
+        for (int fileId = 0; fileId < dbConfig.dm_maxfilecount; fileId++) {
+            if (!fileExists(fileId)) {
+                try {
+                    getChannel(fileId, true); // crée le fichier vide
+                    usedPages.put(fileId, 0);
+                    return fileId;
+                } catch (IOException e) {
+                    System.err.println("Erreur AllocFile: " + e.getMessage());
+                    return -1;
+                }
+            }
+        }
+        System.err.println("Erreur AllocFile: les " + dbConfig.dm_maxfilecount + " fichiers de données sont utilisés");
+        return -1;
+    }
+
+    /**
+     * Supprime le fichier d'une relation (DROP TABLE en mode "un fichier par relation").
+     * L'espace disque est rendu immédiatement, sans parcourir les pages.
+     */
+    public synchronized void DropFile(int fileId) {
+        mappings.remove(fileId);
+        FileChannel channel = channels.remove(fileId);
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Erreur DropFile: " + e.getMessage());
+            }
+        }
+        freePages.clearFile(fileId);
+        usedPages.remove(fileId);
+
+        File f = dataFile(fileId);
+        if (f.exists() && !f.delete()) {
+            System.err.println("Erreur DropFile: impossible de supprimer " + f.getName());
+        }
+    }
+
+    /**
+     * Choisit le fichier qui recevra la prochaine page selon dm_allocpolicy.
+     * FILL : on remplit Data0.bin jusqu'à dm_maxpagesperfile, puis Data1.bin, etc.
+     * ROUNDROBIN : chaque allocation passe au fichier suivant (les E/S se répartissent sur tous les fichiers).
+     * @return L'index du fichier, ou -1 si tous les fichiers sont pleins.
+     */
+    private int chooseFile() throws IOException {
+        boolean roundRobin = "ROUNDROBIN".equalsIgnoreCase(dbConfig.dm_allocpolicy);
+        int start = roundRobin ? nextFile : currentFile;
+
+        for (int i = 0; i < dbConfig.dm_maxfilecount; i++) {
+            int fileId = (start + i) % dbConfig.dm_maxfilecount;
+            if (!roundRobin && fileId < start) {
+                break; // FILL : les fichiers précédents sont déjà pleins
+            }
+            if (getUsedPages(fileId) < dbConfig.dm_maxpagesperfile) {
+                if (roundRobin) {
+                    nextFile = (fileId + 1) % dbConfig.dm_maxfilecount;
+                } else {
+                    currentFile = fileId;
+                }
+                return fileId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Le nombre de pages physiques du fichier DataN.bin (extent préalloué compris).
+     */
+    private int getPageCount(int fileId) throws IOException {
+        if (!fileExists(fileId)) {
+            return 0; // Fichier pas encore créé (il le sera par la première AllocPage)
+        }
+        return (int) (getChannel(fileId).size() / dbConfig.pagesize);
+    }
+
+    private File dataFile(int fileId) {
+        return new File(dbConfig.dbpath + File.separator + "Data" + fileId + ".bin");
+    }
+
+    private boolean fileExists(int fileId) {
+        return channels.containsKey(fileId) || dataFile(fileId).exists();
+    }
+
+    /**
+     * @return Le nombre de pages déjà attribuées dans le fichier (les suivantes sont préallouées).
+     * Sans carte sauvegardée (premier lancement ou arrêt brutal), on considère tout le fichier comme utilisé.
+     */
+    private int getUsedPages(int fileId) throws IOException {
+        Integer used = usedPages.get(fileId);
+        if (used == null) {
+            used = getPageCount(fileId);
+            usedPages.put(fileId, used);
+        }
+        return used;
+    }
+
+    /**
+     * @return true si la page appartient à un fichier existant et a déjà été attribuée
+     * (utilisé pour ignorer les pages périmées d'une liste sauvegardée, ex : préchauffage du BufferManager).
+     */
+    public synchronized boolean IsAllocated(PageId pageId) {
+        if (pageId.FileIdx < 0 || pageId.PageIdx < 0) {
+            return false;
+        }
+        if (!fileExists(pageId.FileIdx)) {
+            return false;
+        }
+        try {
+            return pageId.PageIdx < getUsedPages(pageId.FileIdx);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     /**
      * Lit le contenu d'une page disque dans le buffer fourni.
      */
     public void ReadPage(PageId pageId, byte[] buff) {
+        ReadPage(pageId, ByteBuffer.wrap(buff));
+    }
+
+    /**
+     * Lit le contenu d'une page disque dans [0, pagesize) du buffer fourni (tas ou direct),
+     * sans toucher à sa position. Avec un buffer direct, le channel écrit directement dedans
+     * (pas de copie intermédiaire) ; en mode O_DIRECT, il doit en plus être aligné sur le bloc disque.
+     */
+    public void ReadPage(PageId pageId, ByteBuffer buff) {
+        readCalls.incrementAndGet();
         try {
-            File f = new File(dbConfig.dbpath + File.separator + "Data" + pageId.FileIdx + ".bin");
-            RandomAccessFile raf = new RandomAccessFile(f, "r");
-            
+            if (mmapMode) {
+                // Simple copie mémoire depuis la projection
+                int posInSeg = (pageId.PageIdx % MMAP_SEGMENT_PAGES) * dbConfig.pagesize;
+                pageSlice(buff).put(0, getSegment(pageId), posInSeg, dbConfig.pagesize);
+                return;
+            }
+
+            FileChannel channel = getChannel(pageId.FileIdx);
+
             long offset = (long) pageId.PageIdx * dbConfig.pagesize;
-            raf.seek(offset);
-            raf.readFully(buff); // Remplit tout le buffer
-            raf.close();
+            if (directMode && !isAligned(buff)) {
+                // O_DIRECT : lecture dans le buffer aligné, puis copie
+                ByteBuffer staging = directStaging(1);
+                readFully(channel, staging, offset);
+                pageSlice(buff).put(0, staging, 0, dbConfig.pagesize);
+                return;
+            }
+            // Lecture positionnelle : pas de seek, le channel reste partagé
+            readFully(channel, pageSlice(buff), offset);
         } catch (IOException e) {
             System.err.println("Erreur ReadPage: " + e.getMessage());
         }
@@ -79,32 +457,363 @@ public class DiskManager {
 
     /**
      * Écrit le contenu du buffer sur la page disque.
+     * @return false si l'écriture a échoué (erreur affichée).
      */
-    public void WritePage(PageId pageId, byte[] buff) {
+    public boolean WritePage(PageId pageId, byte[] buff) {
+        return WritePage(pageId, ByteBuffer.wrap(buff));
+    }
+
+    /**
+     * Écrit [0, pagesize) du buffer fourni (tas ou direct) sur la page disque, sans toucher à sa position.
+     * @return false si l'écriture a échoué (erreur affichée).
+     */
+    public boolean WritePage(PageId pageId, ByteBuffer buff) {
+        writeCalls.incrementAndGet();
         try {
-            File f = new File(dbConfig.dbpath + File.separator + "Data" + pageId.FileIdx + ".bin");
-            RandomAccessFile raf = new RandomAccessFile(f, "rw");
-            
+            if (mmapMode) {
+                int posInSeg = (pageId.PageIdx % MMAP_SEGMENT_PAGES) * dbConfig.pagesize;
+                getSegment(pageId).put(posInSeg, pageSlice(buff), 0, dbConfig.pagesize);
+                return true;
+            }
+
+            FileChannel channel = getChannel(pageId.FileIdx);
+
             long offset = (long) pageId.PageIdx * dbConfig.pagesize;
-            raf.seek(offset);
-            raf.write(buff);
-            raf.close();
+            if (directMode && !isAligned(buff)) {
+                ByteBuffer staging = directStaging(1);
+                staging.put(0, pageSlice(buff), 0, dbConfig.pagesize);
+                writeFully(channel, staging, offset);
+                return true;
+            }
+            writeFully(channel, pageSlice(buff), offset);
+            return true;
         } catch (IOException e) {
             System.err.println("Erreur WritePage: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Mode direct : le buffer peut-il servir tel quel à une E/S O_DIRECT (direct et aligné) ?
+     */
+    private boolean isAligned(ByteBuffer buff) {
+        return buff.isDirect() && buff.alignmentOffset(0, directAlign) == 0;
+    }
+
+    /**
+     * Lecture groupée : les pages consécutives d'un même fichier (dans l'ordre de la liste)
+     * sont lues en UN seul appel système (lecture "scatter" vers plusieurs buffers).
+     * @param pageIds Les pages à lire.
+     * @param buffs Les buffers destination (buffs[i] reçoit pageIds.get(i), taille pagesize).
+     */
+    public void ReadPages(List<PageId> pageIds, ByteBuffer[] buffs) {
+        int start = 0;
+        while (start < pageIds.size()) {
+            int end = endOfRun(pageIds, start);
+            PageId first = pageIds.get(start);
+            readCalls.incrementAndGet();
+            try {
+                if (mmapMode) {
+                    for (int i = start; i < end; i++) {
+                        PageId pid = pageIds.get(i);
+                        int posInSeg = (pid.PageIdx % MMAP_SEGMENT_PAGES) * dbConfig.pagesize;
+                        pageSlice(buffs[i]).put(0, getSegment(pid), posInSeg, dbConfig.pagesize);
+                    }
+                } else if (directMode) {
+                    // O_DIRECT : le run est lu dans le buffer aligné par morceaux d'au plus STAGING_MAX_PAGES pages,
+                    // puis redistribué
+                    for (int from = start; from < end; from += STAGING_MAX_PAGES) {
+                        int to = Math.min(end, from + STAGING_MAX_PAGES);
+                        if (from > start) {
+                            readCalls.incrementAndGet();
+                        }
+                        ByteBuffer staging = directStaging(to - from);
+                        readFully(getChannel(first.FileIdx), staging, (long) pageIds.get(from).PageIdx * dbConfig.pagesize);
+                        for (int i = from; i < to; i++) {
+                            pageSlice(buffs[i]).put(0, staging, (i - from) * dbConfig.pagesize, dbConfig.pagesize);
+                        }
+                    }
+                } else {
+                    ByteBuffer[] run = new ByteBuffer[end - start];
+                    for (int i = start; i < end; i++) {
+                        run[i - start] = pageSlice(buffs[i]);
+                    }
+                    FileChannel channel = getChannel(first.FileIdx);
+                    long remaining = (long) run.length * dbConfig.pagesize;
+                    synchronized (channel) {
+                        channel.position((long) first.PageIdx * dbConfig.pagesize);
+                        while (remaining > 0) {
+                            long n = channel.read(run);
+                            if (n < 0) {
+                                throw new EOFException("Page " + pageIds.get(end - 1) + " hors du fichier");
+                            }
+                            remaining -= n;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Erreur ReadPages (à partir de " + first + "): " + e.getMessage());
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Écriture groupée : les pages consécutives d'un même fichier (dans l'ordre de la liste)
+     * sont écrites en UN seul appel système (écriture "gather" depuis plusieurs buffers).
+     * @param pageIds Les pages à écrire.
+     * @param buffs Les buffers source (buffs[i] contient pageIds.get(i), taille pagesize).
+     * @return false si au moins un run n'a pas pu être écrit (les autres le sont quand même).
+     */
+    public boolean WritePages(List<PageId> pageIds, ByteBuffer[] buffs) {
+        boolean ok = true;
+        int start = 0;
+        while (start < pageIds.size()) {
+            int end = endOfRun(pageIds, start);
+            PageId first = pageIds.get(start);
+            writeCalls.incrementAndGet();
+            try {
+                if (mmapMode) {
+                    for (int i = start; i < end; i++) {
+                        PageId pid = pageIds.get(i);
+                        int posInSeg = (pid.PageIdx % MMAP_SEGMENT_PAGES) * dbConfig.pagesize;
+                        getSegment(pid).put(posInSeg, pageSlice(buffs[i]), 0, dbConfig.pagesize);
+                    }
+                } else if (directMode) {
+                    // Même découpage qu'en lecture : le buffer de transit ne dépasse jamais STAGING_MAX_PAGES pages
+                    for (int from = start; from < end; from += STAGING_MAX_PAGES) {
+                        int to = Math.min(end, from + STAGING_MAX_PAGES);
+                        if (from > start) {
+                            writeCalls.incrementAndGet();
+                        }
+                        ByteBuffer staging = directStaging(to - from);
+                        for (int i = from; i < to; i++) {
+                            staging.put((i - from) * dbConfig.pagesize, pageSlice(buffs[i]), 0, dbConfig.pagesize);
+                        }
+                        writeFully(getChannel(first.FileIdx), staging, (long) pageIds.get(from).PageIdx * dbConfig.pagesize);
+                    }
+                } else {
+                    ByteBuffer[] run = new ByteBuffer[end - start];
+                    for (int i = start; i < end; i++) {
+                        run[i - start] = pageSlice(buffs[i]);
+                    }
+                    FileChannel channel = getChannel(first.FileIdx);
+                    long remaining = (long) run.length * dbConfig.pagesize;
+                    synchronized (channel) {
+                        channel.position((long) first.PageIdx * dbConfig.pagesize);
+                        while (remaining > 0) {
+                            remaining -= channel.write(run);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Erreur WritePages (à partir de " + first + "): " + e.getMessage());
+                ok = false;
+            }
+            start = end;
+        }
+        return ok;
+    }
+
+    /**
+     * @return L'index (exclu) de la fin du run de pages contiguës qui commence à start.
+     */
+    private int endOfRun(List<PageId> pageIds, int start) {
+        int end = start + 1;
+        while (end < pageIds.size()
+                && pageIds.get(end).FileIdx == pageIds.get(end - 1).FileIdx
+                && pageIds.get(end).PageIdx == pageIds.get(end - 1).PageIdx + 1) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * @return Une vue [0, pagesize) du buffer, sans toucher à sa position ni à sa limite.
+     */
+    private ByteBuffer pageSlice(ByteBuffer buff) {
+        ByteBuffer view = buff.duplicate();
+        view.clear();
+        view.limit(dbConfig.pagesize);
+        return view;
+    }
+
+    /**
+     * Mode direct : buffer hors tas dont l'adresse est alignée sur la taille de bloc (exigence d'O_DIRECT).
+     */
+    private ByteBuffer alignedBuffer(int size) {
+        ByteBuffer buff = ByteBuffer.allocateDirect(size + directAlign).alignedSlice(directAlign);
+        buff.limit(size);
+        return buff;
+    }
+
+    /**
+     * Mode direct : buffer aligné du thread courant, réutilisé pour toutes ses E/S
+     * (agrandi si besoin, jamais au-delà de STAGING_MAX_PAGES pages), prêt à l'emploi sur [0, pageCount pages).
+     */
+    private ByteBuffer directStaging(int pageCount) {
+        int size = Math.min(pageCount, STAGING_MAX_PAGES) * dbConfig.pagesize;
+        ByteBuffer staging = stagingBuffers.get();
+        if (staging == null || staging.capacity() < size) {
+            staging = alignedBuffer(size);
+            stagingBuffers.set(staging);
+        }
+        staging.clear();
+        staging.limit(size);
+        return staging;
+    }
+
+    /**
+     * Lecture positionnelle complète (un read peut être partiel).
+     */
+    private void readFully(FileChannel channel, ByteBuffer bb, long offset) throws IOException {
+        int start = bb.position();
+        while (bb.hasRemaining()) {
+            int n = channel.read(bb, offset + bb.position() - start);
+            if (n < 0) {
+                throw new EOFException("Lecture hors du fichier (offset " + offset + ")");
+            }
+        }
+    }
+
+    /**
+     * Écriture positionnelle complète (un write peut être partiel).
+     */
+    private void writeFully(FileChannel channel, ByteBuffer bb, long offset) throws IOException {
+        int start = bb.position();
+        while (bb.hasRemaining()) {
+            channel.write(bb, offset + bb.position() - start);
         }
     }
 
     /**
      * Désalloue une page (la rend disponible pour AllocPage).
      */
-    public void DeallocPage(PageId pageId) {
-        freePages.add(pageId);
+    public synchronized void DeallocPage(PageId pageId) {
+        freePages.markFree(pageId);
+    }
+
+    /**
+     * @return Le nombre de pages désallouées en attente de réutilisation.
+     */
+    public synchronized int getFreePageCount() {
+        return freePages.size();
+    }
+
+    /**
+     * Rapport d'occupation : latence moyenne d'AllocPage et, pour chaque fichier,
+     * pages attribuées / préallouées / libres (mesure de la fragmentation).
+     */
+    public synchronized String GetSpaceReport() {
+        StringBuilder sb = new StringBuilder();
+        double avgMicros = (allocCount == 0) ? 0 : allocNanos / 1000.0 / allocCount;
+        sb.append(String.format("AllocPage : %d appels, %.2f µs en moyenne, %d extension(s) de fichier (extent = %d pages)%n",
+                allocCount, avgMicros, extentCount, dbConfig.dm_extentsize));
+
+        List<Integer> files = new ArrayList<>(usedPages.keySet());
+        Collections.sort(files);
+        for (int fileId : files) {
+            try {
+                int used = usedPages.get(fileId);
+                int physical = getPageCount(fileId);
+                sb.append(String.format("  Data%d.bin : %d pages attribuées, %d préallouées non utilisées, %d libérées%n",
+                        fileId, used, physical - used, freePages.countFree(fileId)));
+            } catch (IOException e) {
+                sb.append("  Data").append(fileId).append(".bin : illisible (").append(e.getMessage()).append(")\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return Le nombre de requêtes de lecture émises depuis le démarrage.
+     */
+    public long getReadCalls() {
+        return readCalls.get();
     }
-    
+
     /**
-     * Fermeture propre du DiskManager (sauvegarde état si nécessaire).
+     * @return Le nombre de requêtes d'écriture émises depuis le démarrage.
      */
-    public void Finish() {
-        // Pour l'instant, rien de spécial à faire à la fermeture
+    public long getWriteCalls() {
+        return writeCalls.get();
+    }
+
+    /**
+     * @return Le nombre de fichiers actuellement ouverts dans le pool.
+     */
+    public synchronized int getOpenFileCount() {
+        return channels.size();
+    }
+
+    /**
+     * @return Le nombre total d'ouvertures de fichiers depuis le démarrage.
+     */
+    public int getOpenedHandles() {
+        return openedHandles;
+    }
+
+    /**
+     * @return Le nombre total de segments projetés en mémoire (mode mmap) depuis le démarrage.
+     */
+    public synchronized int getMappingCount() {
+        return mappingCount;
+    }
+
+    /**
+     * Force sur le disque les écritures déjà faites (canaux et projections mmap), sans fermer les fichiers.
+     */
+    public synchronized void Sync() {
+        for (List<MappedByteBuffer> segments : mappings.values()) {
+            for (MappedByteBuffer segment : segments) {
+                if (segment != null) {
+                    segment.force();
+                }
+            }
+        }
+        for (Map.Entry<Integer, FileChannel> entry : channels.entrySet()) {
+            try {
+                entry.getValue().force(false);
+            } catch (IOException e) {
+                System.err.println("Erreur synchronisation Data" + entry.getKey() + ".bin : " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Fermeture propre du DiskManager : sauvegarde la carte des pages libres,
+     * force les projections mmap sur le disque puis ferme tous les fichiers du pool.
+     */
+    public synchronized void Finish() {
+        File spaceMapFile = new File(dbConfig.dbpath + File.separator + SPACE_MAP_FILE);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spaceMapFile)))) {
+            freePages.save(out);
+            out.writeInt(usedPages.size());
+            for (Map.Entry<Integer, Integer> entry : usedPages.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur sauvegarde " + SPACE_MAP_FILE + " : " + e.getMessage());
+        }
+
+        for (List<MappedByteBuffer> segments : mappings.values()) {
+            for (MappedByteBuffer segment : segments) {
+                if (segment != null) {
+                    segment.force();
+                }
+            }
+        }
+        mappings.clear();
+
+        for (Map.Entry<Integer, FileChannel> entry : channels.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                System.err.println("Erreur fermeture Data" + entry.getKey() + ".bin : " + e.getMessage());
+            }
+        }
+        System.out.println("   [Info] DiskManager : " + openedHandles + " ouverture(s) de fichier pour la session.");
+        channels.clear();
     }
-}
\ No newline at end of file
+}
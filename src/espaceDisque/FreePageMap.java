@@ -0,0 +1,142 @@
+package espaceDisque;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Carte des pages libres du DiskManager : un bitmap par fichier DataN.bin
+ * (bit à 1 = page désallouée, réutilisable par AllocPage).
+ * Elle est sauvegardée par le DiskManager à l'arrêt (spacemap.bin) et rechargée au démarrage.
+ */
+public class FreePageMap {
+
+    private Map<Integer, long[]> bitmaps;   // fileIdx -> bits (64 pages par mot)
+    private Map<Integer, Integer> freeCount; // fileIdx -> nombre de pages libres
+    private Map<Integer, Integer> firstWord; // fileIdx -> premier mot pouvant contenir un bit à 1
+
+    public FreePageMap() {
+        this.bitmaps = new HashMap<>();
+        this.freeCount = new HashMap<>();
+        this.firstWord = new HashMap<>();
+    }
+
+    /**
+     * Marque une page comme libre (DeallocPage). Sans effet si elle l'est déjà.
+     */
+    public void markFree(PageId pageId) {
+        int word = pageId.PageIdx >>> 6;
+        long[] bits = bitmaps.get(pageId.FileIdx);
+        if (bits == null || bits.length <= word) {
+            // On agrandit le bitmap (doublement pour rester en O(1) amorti)
+            int newLength = Math.max(word + 1, (bits == null) ? 16 : bits.length * 2);
+            bits = (bits == null) ? new long[newLength] : Arrays.copyOf(bits, newLength);
+            bitmaps.put(pageId.FileIdx, bits);
+        }
+
+        long mask = 1L << (pageId.PageIdx & 63);
+        if ((bits[word] & mask) != 0) {
+            return; // Déjà libre : on ne la compte pas deux fois
+        }
+        bits[word] |= mask;
+        freeCount.merge(pageId.FileIdx, 1, Integer::sum);
+        firstWord.merge(pageId.FileIdx, word, Math::min);
+    }
+
+    /**
+     * Retire et renvoie une page libre du fichier donné.
+     * @return La page, ou null si le fichier n'a aucune page libre.
+     */
+    public PageId takeFree(int fileIdx) {
+        if (freeCount.getOrDefault(fileIdx, 0) == 0) {
+            return null;
+        }
+        long[] bits = bitmaps.get(fileIdx);
+
+        // Parcours mot par mot (64 pages à la fois) à partir du premier mot non vide connu
+        for (int w = firstWord.getOrDefault(fileIdx, 0); w < bits.length; w++) {
+            if (bits[w] != 0) {
+                int bit = Long.numberOfTrailingZeros(bits[w]);
+                bits[w] &= ~(1L << bit);
+                freeCount.merge(fileIdx, -1, Integer::sum);
+                firstWord.put(fileIdx, w);
+                return new PageId(fileIdx, (w << 6) + bit);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retire et renvoie une page libre de n'importe quel fichier.
+     * @return La page, ou null si aucune page n'est libre.
+     */
+    public PageId takeAnyFree() {
+        for (Map.Entry<Integer, Integer> entry : freeCount.entrySet()) {
+            if (entry.getValue() > 0) {
+                return takeFree(entry.getKey());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Oublie toutes les pages libres d'un fichier (fichier supprimé).
+     */
+    public void clearFile(int fileIdx) {
+        bitmaps.remove(fileIdx);
+        freeCount.remove(fileIdx);
+        firstWord.remove(fileIdx);
+    }
+
+    /**
+     * @return Le nombre total de pages libres.
+     */
+    public int size() {
+        int total = 0;
+        for (int count : freeCount.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return Le nombre de pages libres du fichier donné.
+     */
+    public int countFree(int fileIdx) {
+        return freeCount.getOrDefault(fileIdx, 0);
+    }
+
+    /**
+     * Sauvegarde la carte : [nbFichiers] puis pour chaque fichier [fileIdx][nbMots][mots...].
+     */
+    public void save(DataOutputStream out) throws IOException {
+        out.writeInt(bitmaps.size());
+        for (Map.Entry<Integer, long[]> entry : bitmaps.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            for (long word : entry.getValue()) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    /**
+     * Recharge une carte sauvegardée par save().
+     */
+    public static FreePageMap load(DataInputStream in) throws IOException {
+        FreePageMap map = new FreePageMap();
+        int nbFiles = in.readInt();
+        for (int i = 0; i < nbFiles; i++) {
+            int fileIdx = in.readInt();
+            long[] bits = new long[in.readInt()];
+            int count = 0;
+            for (int w = 0; w < bits.length; w++) {
+                bits[w] = in.readLong();
+                count += Long.bitCount(bits[w]);
+            }
+            map.bitmaps.put(fileIdx, bits);
+            map.freeCount.put(fileIdx, count);
+            map.firstWord.put(fileIdx, 0);
+        }
+        return map;
+    }
+}
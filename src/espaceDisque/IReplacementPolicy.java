@@ -0,0 +1,43 @@
+package espaceDisque;
+
+/**
+ * Politique de remplacement du BufferManager.
+ * Elle ne voit que des indices de frames : le BufferManager la prévient de chaque
+ * événement (chargement, accès, libération) et lui demande une victime en cas de défaut de page.
+ * Seules les frames non épinglées (pin_count == 0) doivent pouvoir être choisies.
+ */
+public interface IReplacementPolicy {
+    /**
+     * Une page vient d'être chargée depuis le disque dans la frame (elle est épinglée).
+     */
+    void onLoad(int frameIdx, PageId pageId);
+
+    /**
+     * Accès à une page déjà présente en mémoire (elle est épinglée une fois de plus).
+     */
+    void onHit(int frameIdx, PageId pageId);
+
+    /**
+     * Le pin_count de la frame est retombé à 0 : elle devient remplaçable.
+     * Peut viser une frame déjà rendue par pickVictim (le BufferManager n'a finalement pas
+     * remplacé la page) : la politique doit alors la reprendre dans son suivi.
+     */
+    void onUnpin(int frameIdx, PageId pageId);
+
+    /**
+     * Choisit une frame remplaçable et la retire du suivi.
+     * @param incoming La page qui va être chargée à la place.
+     * @return L'indice de la frame, ou -1 si toutes sont épinglées.
+     */
+    int pickVictim(PageId incoming);
+
+    /**
+     * La frame est vidée sans remplacement (flush, DROP) : la politique l'oublie.
+     */
+    void onRemove(int frameIdx);
+
+    /**
+     * @return Le nom de la politique (LRU, MRU...).
+     */
+    String getName();
+}
@@ -0,0 +1,75 @@
+package espaceDisque;
+
+import java.util.TreeMap;
+
+/**
+ * Politiques LRU et MRU.
+ * Chaque accès donne à la frame une date logique ; les frames remplaçables sont rangées
+ * par date dans un TreeMap, donc la victime (la plus ancienne en LRU, la plus récente en MRU)
+ * est trouvée en O(log n) au lieu d'un parcours complet du pool.
+ */
+public class LRUPolicy implements IReplacementPolicy {
+
+    private boolean mru;                       // true = MRU (on éjecte la plus récente)
+    private long timer;                        // Compteur logique des accès
+    private long[] lastUsed;                   // frame -> date du dernier accès
+    private boolean[] evictable;               // frame -> présente dans candidates ?
+    private TreeMap<Long, Integer> candidates; // date -> frame, pour les frames non épinglées
+
+    public LRUPolicy(int frameCount, boolean mru) {
+        this.mru = mru;
+        this.timer = 0;
+        this.lastUsed = new long[frameCount];
+        this.evictable = new boolean[frameCount];
+        this.candidates = new TreeMap<>();
+    }
+
+    /**
+     * Passe de LRU à MRU (ou inversement) en gardant les dates déjà connues.
+     */
+    public void setMRU(boolean mru) {
+        this.mru = mru;
+    }
+
+    public void onLoad(int frameIdx, PageId pageId) {
+        touch(frameIdx);
+    }
+
+    public void onHit(int frameIdx, PageId pageId) {
+        touch(frameIdx);
+    }
+
+    public void onUnpin(int frameIdx, PageId pageId) {
+        if (!evictable[frameIdx]) {
+            candidates.put(lastUsed[frameIdx], frameIdx);
+            evictable[frameIdx] = true;
+        }
+    }
+
+    public int pickVictim(PageId incoming) {
+        if (candidates.isEmpty()) {
+            return -1;
+        }
+        int frameIdx = mru ? candidates.pollLastEntry().getValue() : candidates.pollFirstEntry().getValue();
+        evictable[frameIdx] = false;
+        return frameIdx;
+    }
+
+    public void onRemove(int frameIdx) {
+        if (evictable[frameIdx]) {
+            candidates.remove(lastUsed[frameIdx]);
+            evictable[frameIdx] = false;
+        }
+    }
+
+    public String getName() {
+        return mru ? "MRU" : "LRU";
+    }
+
+    // Nouvel accès : la frame est épinglée, elle sort des candidats et prend une nouvelle date
+    private void touch(int frameIdx) {
+        onRemove(frameIdx);
+        timer++;
+        lastUsed[frameIdx] = timer;
+    }
+}
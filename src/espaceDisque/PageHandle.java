@@ -0,0 +1,66 @@
+package espaceDisque;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Page épinglée dans le BufferManager, obtenue par BufferManager.PinPage.
+ * Le handle connaît sa frame : close() la dépingle directement, sans rechercher la page
+ * dans la table des pages comme FreePage. S'utilise avec try-with-resources :
+ *
+ *   try (PageHandle page = bufferManager.PinPage(pageId)) {
+ *       page.getBuffer().putInt(0, 42);
+ *       page.markDirty();
+ *   }
+ *
+ * Un handle appartient au thread qui l'a obtenu et ne doit plus être utilisé après close().
+ */
+public final class PageHandle implements AutoCloseable {
+
+    private final BufferManager bufferManager;
+    private final int frameIdx;
+    private final PageId pageId;
+    private final ByteBuffer buffer;
+    private boolean dirty;
+    private boolean closed;
+
+    PageHandle(BufferManager bufferManager, int frameIdx, PageId pageId, ByteBuffer buffer) {
+        this.bufferManager = bufferManager;
+        this.frameIdx = frameIdx;
+        this.pageId = pageId;
+        this.buffer = buffer;
+    }
+
+    public PageId getPageId() {
+        return pageId;
+    }
+
+    /**
+     * @return Une vue sur la frame (position 0, limite pagesize) : ses écritures modifient la page en mémoire.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Signale que la page a été modifiée : elle sera écrite sur le disque avant d'être remplacée.
+     */
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Dépingle la page (équivalent de FreePage(pageId, isDirty())). Un second appel ne fait rien.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        bufferManager.unpin(frameIdx, pageId, dirty);
+    }
+}
@@ -2,7 +2,7 @@ package espaceDisque;
 
 import java.io.Serializable;
 
-public class PageId implements Serializable{
+public class PageId implements Serializable, Comparable<PageId> {
 	
 	private static final long serialVersionUID = 1L;
     public int FileIdx;
@@ -25,4 +25,15 @@ public class PageId implements Serializable{
         PageId pageId = (PageId) o;
         return FileIdx == pageId.FileIdx && PageIdx == pageId.PageIdx;
     }
-}
\ No newline at end of file
+
+    // Cohérent avec equals : indispensable pour servir de clé dans la table des pages du BufferManager
+    public int hashCode() {
+        return 31 * FileIdx + PageIdx;
+    }
+
+    // Ordre physique sur le disque : par fichier, puis par position dans le fichier
+    public int compareTo(PageId other) {
+        if (FileIdx != other.FileIdx) return Integer.compare(FileIdx, other.FileIdx);
+        return Integer.compare(PageIdx, other.PageIdx);
+    }
+}
@@ -0,0 +1,151 @@
+package espaceDisque;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.TreeMap;
+
+/**
+ * Politique 2Q (Johnson et Shasha), résistante aux parcours séquentiels.
+ * - A1in : file FIFO des pages vues une seule fois (taille cible : 1/4 du pool).
+ * - A1out : file "fantôme" des PageId récemment éjectés de A1in (sans contenu, 1/2 du pool).
+ * - Am : LRU des pages réclamées une seconde fois après leur passage dans A1out.
+ * Un SELECT qui parcourt une grosse table ne fait que traverser A1in : les pages chaudes
+ * (ex : la page d'en-tête relue à chaque InsertRecord) restent dans Am.
+ */
+public class TwoQPolicy implements IReplacementPolicy {
+
+    private static final int NONE = 0;
+    private static final int A1IN = 1;
+    private static final int AM = 2;
+
+    private int kin;                          // Taille cible de A1in
+    private int kout;                         // Taille maximale de A1out
+    private long timer;                       // Compteur logique (ordre FIFO / LRU)
+    private int[] queueOf;                    // frame -> NONE, A1IN ou AM
+    private long[] stamp;                     // frame -> date d'entrée (A1in) ou de dernier accès (Am)
+    private PageId[] pageOf;                  // frame -> page chargée (pour alimenter A1out)
+    private int[] pickedFrom;                 // frame -> file quittée au dernier pickVictim (NONE sinon)
+    private boolean[] evictable;              // frame -> non épinglée ?
+    private int a1inSize;                     // Nombre de frames dans A1in (épinglées ou non)
+    private TreeMap<Long, Integer> a1inFree;  // Frames non épinglées de A1in, par date
+    private TreeMap<Long, Integer> amFree;    // Frames non épinglées de Am, par date
+    private LinkedHashSet<PageId> a1out;      // File fantôme (ordre d'insertion)
+
+    public TwoQPolicy(int frameCount) {
+        this.kin = Math.max(1, frameCount / 4);
+        this.kout = Math.max(1, frameCount / 2);
+        this.timer = 0;
+        this.queueOf = new int[frameCount];
+        this.stamp = new long[frameCount];
+        this.pageOf = new PageId[frameCount];
+        this.pickedFrom = new int[frameCount];
+        this.evictable = new boolean[frameCount];
+        this.a1inSize = 0;
+        this.a1inFree = new TreeMap<>();
+        this.amFree = new TreeMap<>();
+        this.a1out = new LinkedHashSet<>();
+    }
+
+    public void onLoad(int frameIdx, PageId pageId) {
+        onRemove(frameIdx);
+        pageOf[frameIdx] = pageId;
+        stamp[frameIdx] = ++timer;
+        if (a1out.remove(pageId)) {
+            queueOf[frameIdx] = AM; // Seconde demande : la page est vraiment réutilisée
+        } else {
+            queueOf[frameIdx] = A1IN;
+            a1inSize++;
+        }
+    }
+
+    public void onHit(int frameIdx, PageId pageId) {
+        if (queueOf[frameIdx] == NONE) {
+            reenter(frameIdx, pageId);
+        }
+        unlink(frameIdx);
+        if (queueOf[frameIdx] == AM) {
+            stamp[frameIdx] = ++timer; // LRU dans Am ; A1in reste FIFO (accès corrélés ignorés)
+        }
+    }
+
+    public void onUnpin(int frameIdx, PageId pageId) {
+        if (queueOf[frameIdx] == NONE) {
+            reenter(frameIdx, pageId);
+        }
+        if (evictable[frameIdx]) {
+            return;
+        }
+        evictable[frameIdx] = true;
+        (queueOf[frameIdx] == AM ? amFree : a1inFree).put(stamp[frameIdx], frameIdx);
+    }
+
+    public int pickVictim(PageId incoming) {
+        int frameIdx;
+        int from;
+        if ((a1inSize > kin && !a1inFree.isEmpty()) || amFree.isEmpty()) {
+            if (a1inFree.isEmpty()) {
+                return -1;
+            }
+            frameIdx = a1inFree.firstEntry().getValue();
+            remember(pageOf[frameIdx]);
+            from = A1IN;
+        } else {
+            frameIdx = amFree.firstEntry().getValue();
+            from = AM;
+        }
+        onRemove(frameIdx);
+        pickedFrom[frameIdx] = from;
+        return frameIdx;
+    }
+
+    public void onRemove(int frameIdx) {
+        unlink(frameIdx);
+        if (queueOf[frameIdx] == A1IN) {
+            a1inSize--;
+        }
+        queueOf[frameIdx] = NONE;
+        pageOf[frameIdx] = null;
+        pickedFrom[frameIdx] = NONE;
+    }
+
+    public String getName() {
+        return "2Q";
+    }
+
+    // Retire la frame des candidats à l'éviction (elle est épinglée ou quitte la politique)
+    private void unlink(int frameIdx) {
+        if (evictable[frameIdx]) {
+            (queueOf[frameIdx] == AM ? amFree : a1inFree).remove(stamp[frameIdx]);
+            evictable[frameIdx] = false;
+        }
+    }
+
+    /**
+     * Reprend une frame que la politique ne suit plus : victime finalement rendue par le BufferManager
+     * (claim perdu, écriture en cours) ou page d'une frame jamais déclarée. Elle retourne dans la file
+     * qu'elle vient de quitter (A1in par défaut), avec sa date, et sort de A1out si elle y avait été mise.
+     */
+    private void reenter(int frameIdx, PageId pageId) {
+        int queue = (pickedFrom[frameIdx] == AM) ? AM : A1IN;
+        if (queue == A1IN) {
+            a1out.remove(pageId);
+            a1inSize++;
+        }
+        if (pickedFrom[frameIdx] == NONE) {
+            stamp[frameIdx] = ++timer;
+        }
+        queueOf[frameIdx] = queue;
+        pageOf[frameIdx] = pageId;
+        pickedFrom[frameIdx] = NONE;
+    }
+
+    // Ajoute une page éjectée de A1in à la file fantôme, en oubliant la plus ancienne si besoin
+    private void remember(PageId pageId) {
+        a1out.add(pageId);
+        if (a1out.size() > kout) {
+            Iterator<PageId> oldest = a1out.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+    }
+}
@@ -8,6 +8,8 @@ import java.util.Map;
 
 // Il faut importer les classes des autres packages !
 import espaceDisque.BufferManager;
+import espaceDisque.BufferPoolFullException;
+import espaceDisque.BufferRing;
 import espaceDisque.DBConfig;
 import espaceDisque.DiskManager;
 import donnees.ColInfo;
@@ -50,13 +52,25 @@ public class DBManager {
                 System.err.println("[DBManager] Erreur chargement catalogue : " + e.getMessage());
             }
         }
+
+        // Démarrage à chaud : les pages chaudes de la session précédente sont rechargées en tâche de fond
+        int warmPages = bufferManager.WarmUp();
+        if (warmPages > 0) {
+            System.out.println("[DBManager] Préchauffage du buffer pool : " + warmPages + " pages en tâche de fond.");
+        }
     }
 
     /**
      * Arrêt du SGBD.
      */
     public void Finish() {
-        bufferManager.FlushBuffers();
+        bufferManager.Finish();
+        saveCatalog();
+        diskManager.Finish();
+        System.out.println("[DBManager] Arrêt complet.");
+    }
+
+    private void saveCatalog() {
         try {
             File catalogFile = new File(dbConfig.dbpath + File.separator + "catalogue.db");
             try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(catalogFile))) {
@@ -65,14 +79,16 @@ public class DBManager {
         } catch (IOException e) {
             System.err.println("[DBManager] Erreur sauvegarde catalogue : " + e.getMessage());
         }
-        diskManager.Finish();
-        System.out.println("[DBManager] Arrêt complet.");
     }
     
     public Relation GetRelation(String name) {
         return tables.get(name);
     }
 
+    public BufferManager getBufferManager() {
+        return bufferManager;
+    }
+
     // ==========================================
     // MÉTHODES DE TRAITEMENT DES COMMANDES (SQL)
     // ==========================================
@@ -132,11 +148,37 @@ public class DBManager {
                         handleListTables();
                     }
                     break;
+                case "SHOW":
+                    // SHOW DISK STATS : occupation des fichiers et contiguïté des tables
+                    if (parts.length > 2 && parts[1].equalsIgnoreCase("DISK") && parts[2].equalsIgnoreCase("STATS")) {
+                        handleShowDiskStats();
+                    }
+                    // SHOW BUFFER STATS : hits, misses, évictions et latences d'E/S, par politique et par relation
+                    else if (parts.length > 2 && parts[1].equalsIgnoreCase("BUFFER") && parts[2].equalsIgnoreCase("STATS")) {
+                        System.out.print(bufferManager.GetStatsReport());
+                    } else {
+                        System.out.println("Erreur syntaxe : SHOW DISK STATS | SHOW BUFFER STATS");
+                    }
+                    break;
+                case "SET":
+                    // SET BUFFERCOUNT <n> : redimensionne le buffer pool sans redémarrer
+                    if (parts.length == 3 && parts[1].equalsIgnoreCase("BUFFERCOUNT")) {
+                        handleSetBufferCount(parts[2]);
+                    } else {
+                        System.out.println("Erreur syntaxe : SET BUFFERCOUNT <n>");
+                    }
+                    break;
+                case "CHECKPOINT":
+                    handleCheckpoint();
+                    break;
                 case "EXIT":
                     break;
                 default:
                     System.out.println("Commande inconnue : " + verb);
             }
+        } catch (BufferPoolFullException e) {
+            // Toutes les frames sont épinglées : la commande échoue, le SGBD continue
+            System.out.println("Erreur : " + e.getMessage());
         } catch (Exception e) {
             System.out.println("Erreur d'exécution : " + e.getMessage());
             e.printStackTrace();
@@ -188,6 +230,15 @@ public class DBManager {
         }
 
         Relation rel = new Relation(tableName, columns, diskManager, bufferManager, null, dbConfig);
+        // Mode "un fichier par relation" : la table reçoit son propre fichier DataN.bin
+        if ("RELATION".equalsIgnoreCase(dbConfig.dm_filemode)) {
+            int fileIdx = diskManager.AllocFile();
+            if (fileIdx == -1) {
+                System.out.println("Erreur : Plus de fichier disponible pour la table " + tableName + ".");
+                return;
+            }
+            rel.setOwnFile(fileIdx);
+        }
         rel.createHeaderPage();
         tables.put(tableName, rel);
         System.out.println("Table " + tableName + " créée.");
@@ -216,20 +267,36 @@ public class DBManager {
         
         Relation rel = tables.get(tableName);
         
-        // 1. Récupérer toutes les pages utilisées par la relation (Header + Data)
+        // 1. Libérer l'espace disque de la relation
+        freeRelationSpace(rel);
+        
+        // 2. Supprimer la table du catalogue en mémoire
+        tables.remove(tableName);
+        System.out.println("Table " + tableName + " supprimée.");
+    }
+    
+    /**
+     * Rend au DiskManager l'espace occupé par une relation (DROP TABLE / DROP TABLES).
+     */
+    private void freeRelationSpace(Relation rel) {
+        int ownFile = rel.getOwnFile();
+        if (ownFile != -1) {
+            // Fichier propre : on oublie ses pages en mémoire et on supprime le fichier (O(1))
+            bufferManager.DiscardFile(ownFile);
+            diskManager.DropFile(ownFile);
+            return;
+        }
+
+        // Fichiers partagés : il faut récupérer toutes les pages de données (et les pages de débordement
+        // du répertoire) et les désallouer une à une
         // On utilise le nom complet 'espaceDisque.PageId' pour éviter les erreurs d'import
         java.util.List<espaceDisque.PageId> pagesToFree = rel.getDataPages();
-        
-        // 2. Désallouer chaque page via le DiskManager
+        pagesToFree.addAll(rel.getDirectoryOverflowPages());
         for (espaceDisque.PageId pid : pagesToFree) {
             diskManager.DeallocPage(pid);
         }
-        
-        // 3. Supprimer la table du catalogue en mémoire
-        tables.remove(tableName);
-        System.out.println("Table " + tableName + " supprimée.");
     }
-    
+
     /**
      * Gère la commande INSERT INTO.
      * Format : INSERT INTO NomRelation VALUES (val1,val2,...)
@@ -405,19 +472,21 @@ public class DBManager {
         int count = 0;
         donnees.Record rec;
         
-        while ((rec = iterator.GetNextRecord()) != null) {
-          
-            StringBuilder sb = new StringBuilder(); 
-            for (int i = 0; i < rec.values.size(); i++) {
-                sb.append(rec.values.get(i));
-   
-                if (i < rec.values.size() - 1) sb.append(" ; ");
+        try {
+            while ((rec = iterator.GetNextRecord()) != null) {
+              
+                StringBuilder sb = new StringBuilder(); 
+                for (int i = 0; i < rec.values.size(); i++) {
+                    sb.append(rec.values.get(i));
+       
+                    if (i < rec.values.size() - 1) sb.append(" ; ");
+                }
+                System.out.println(sb.toString());
+                count++;
             }
-            System.out.println(sb.toString());
-            count++;
+        } finally {
+            iterator.Close(); // Le scanner garde une page épinglée tant qu'il n'est pas fermé
         }
-        
-        iterator.Close();
         System.out.println("Total selected records = " + count);
     }
     /**
@@ -457,8 +526,9 @@ public class DBManager {
             return;
         }
 
-        // Lecture et Insertion
+        // Lecture et Insertion (les pages de données passent par un anneau de frames)
         int count = 0;
+        BufferRing ring = bufferManager.NewRing();
         try (BufferedReader br = new BufferedReader(new FileReader(csvFile))) {
             String line;
             while ((line = br.readLine()) != null) {
@@ -501,7 +571,7 @@ public class DBManager {
                         }
                     }
                     // Insertion
-                    rel.InsertRecord(record);
+                    rel.InsertRecord(record, ring);
                     count++;
                 } catch (Exception e) {
                     System.out.println("Erreur ligne CSV : " + line + " -> " + e.getMessage());
@@ -511,6 +581,8 @@ public class DBManager {
 
         } catch (IOException e) {
             System.out.println("Erreur lecture fichier : " + e.getMessage());
+        } finally {
+            bufferManager.ReleaseRing(ring);
         }
     }
     /**
@@ -643,6 +715,60 @@ public class DBManager {
         }
     }
 
+    /**
+     * CHECKPOINT : écrit les pages sales et le catalogue puis force les fichiers sur le disque,
+     * sans vider le buffer pool. Après un arrêt brutal, la base repart de cet état.
+     * La carte des pages libres n'est sauvegardée qu'au Finish : au pire des pages allouées
+     * depuis sont perdues, jamais attribuées deux fois.
+     */
+    private void handleCheckpoint() {
+        int written = bufferManager.Checkpoint();
+        saveCatalog();
+        diskManager.Sync();
+        System.out.println("Checkpoint : " + written + " page(s) écrite(s).");
+    }
+
+    /**
+     * SET BUFFERCOUNT n : agrandit ou réduit le buffer pool à chaud (par exemple avant un gros APPEND).
+     */
+    private void handleSetBufferCount(String value) {
+        int count;
+        try {
+            count = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.out.println("Nombre de frames invalide : " + value);
+            return;
+        }
+        if (bufferManager.resize(count)) {
+            System.out.println("Buffer pool : " + bufferManager.getFrameCount() + " frames.");
+        } else {
+            System.out.println("Buffer pool inchangé : " + bufferManager.getFrameCount() + " frames.");
+        }
+    }
+
+    /**
+     * Affiche l'occupation disque (SHOW DISK STATS) : latence d'AllocPage, extents,
+     * et pour chaque table le nombre de "runs" de pages contiguës (1 run = table non fragmentée).
+     */
+    private void handleShowDiskStats() {
+        System.out.print(diskManager.GetSpaceReport());
+        for (Map.Entry<String, Relation> entry : tables.entrySet()) {
+            List<espaceDisque.PageId> pages = new ArrayList<>(entry.getValue().getDataPages());
+            pages.sort((a, b) -> (a.FileIdx != b.FileIdx) ? Integer.compare(a.FileIdx, b.FileIdx)
+                    : Integer.compare(a.PageIdx, b.PageIdx));
+
+            int runs = 0;
+            espaceDisque.PageId prev = null;
+            for (espaceDisque.PageId pid : pages) {
+                if (prev == null || pid.FileIdx != prev.FileIdx || pid.PageIdx != prev.PageIdx + 1) {
+                    runs++;
+                }
+                prev = pid;
+            }
+            System.out.println("  Table " + entry.getKey() + " : " + pages.size() + " pages de données en " + runs + " run(s) contigu(s)");
+        }
+    }
+
     /**
      * Supprime TOUTES les tables (Pour DROP TABLES).
      */
@@ -658,9 +784,7 @@ public class DBManager {
             Relation rel = tables.get(name);
             if (rel != null) {
                 // 1. Libérer les pages
-                for (espaceDisque.PageId pid : rel.getDataPages()) {
-                    diskManager.DeallocPage(pid);
-                }
+                freeRelationSpace(rel);
             }
         }
         // 2. Vider le catalogue
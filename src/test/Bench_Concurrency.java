@@ -0,0 +1,125 @@
+package test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import espaceDisque.BufferManager;
+import espaceDisque.DBConfig;
+import espaceDisque.DiskManager;
+import espaceDisque.PageId;
+
+/**
+ * Test de charge multi-thread du BufferManager.
+ * Chaque page porte son identité (octets 0-7) et un compteur (octets 8-15).
+ * Les threads lisent des pages au hasard (l'identité doit correspondre) et incrémentent
+ * le compteur des pages qui leur appartiennent ; à la fin, les compteurs relus sur le disque
+ * doivent être exacts. On mesure le débit pour 1, 2, 4, 8... threads.
+ * Lancement : java -cp bin test.Bench_Concurrency [nbPages] [bm_buffercount] [opsParThread] [policy] [heap|offheap]
+ */
+public class Bench_Concurrency {
+
+    public static void main(String[] args) throws InterruptedException {
+        int nbPages = (args.length > 0) ? Integer.parseInt(args[0]) : 4096;
+        int bufferCount = (args.length > 1) ? Integer.parseInt(args[1]) : 512;
+        int opsPerThread = (args.length > 2) ? Integer.parseInt(args[2]) : 200000;
+        String policy = (args.length > 3) ? args[3] : "LRU";
+        String memory = (args.length > 4) ? args[4] : "heap";
+
+        System.out.println("=== Stress BufferManager : " + nbPages + " pages, " + bufferCount + " frames, "
+                + opsPerThread + " accès par thread, " + policy + ", " + memory + " ===");
+        System.out.printf("%-8s %12s %12s %10s %10s%n", "Threads", "Temps", "Accès/s", "Hit ratio", "Erreurs");
+
+        boolean ok = true;
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            ok &= run(threads, nbPages, bufferCount, opsPerThread, policy, memory);
+        }
+        System.out.println(ok ? "Résultat : OK" : "Résultat : ÉCHEC");
+    }
+
+    /**
+     * Lance un scénario et vérifie le contenu final des pages.
+     * @return true si aucune incohérence n'a été détectée.
+     */
+    public static boolean run(int threads, int nbPages, int bufferCount, int opsPerThread, String policy,
+            String memory) throws InterruptedException {
+        String path = "./BinData_Bench_Concurrency";
+        cleanDir(path);
+
+        DBConfig config = new DBConfig(path, 4096, 4, bufferCount, policy);
+        config.bm_memory = memory;
+        DiskManager dm = new DiskManager(config);
+        dm.Init();
+
+        PageId[] pages = new PageId[nbPages];
+        byte[] init = new byte[config.pagesize];
+        for (int i = 0; i < nbPages; i++) {
+            pages[i] = dm.AllocPage();
+            ByteBuffer.wrap(init).putInt(0, pages[i].FileIdx).putInt(4, pages[i].PageIdx).putLong(8, 0);
+            dm.WritePage(pages[i], init);
+        }
+
+        BufferManager bm = new BufferManager(config, dm);
+        long[] expected = new long[nbPages]; // Chaque case n'est écrite que par le thread propriétaire
+        AtomicInteger errors = new AtomicInteger();
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(() -> {
+                Random rnd = new Random(id);
+                for (int op = 0; op < opsPerThread; op++) {
+                    int i = rnd.nextInt(nbPages);
+                    boolean write = (i % threads == id) && rnd.nextInt(4) == 0;
+                    ByteBuffer bb = bm.GetPageBuffer(pages[i]);
+                    if (bb == null) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (bb.getInt(0) != pages[i].FileIdx || bb.getInt(4) != pages[i].PageIdx) {
+                        errors.incrementAndGet(); // Mauvaise page dans la frame
+                    }
+                    if (write) {
+                        bb.putLong(8, bb.getLong(8) + 1);
+                        expected[i]++;
+                    }
+                    bm.FreePage(pages[i], write);
+                }
+            });
+        }
+
+        long t0 = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        long elapsed = System.nanoTime() - t0;
+
+        // Vérification sur le disque après le flush
+        bm.FlushBuffers();
+        byte[] check = new byte[config.pagesize];
+        for (int i = 0; i < nbPages; i++) {
+            dm.ReadPage(pages[i], check);
+            if (ByteBuffer.wrap(check).getLong(8) != expected[i]) {
+                errors.incrementAndGet(); // Mise à jour perdue
+            }
+        }
+        long hits = bm.getHitCount();
+        long misses = bm.getMissCount();
+        dm.Finish();
+        cleanDir(path);
+
+        long totalOps = (long) threads * opsPerThread;
+        System.out.printf("%-8d %9d ms %12d %9.1f%% %10d%n", threads, elapsed / 1_000_000,
+                totalOps * 1_000_000_000L / Math.max(1, elapsed), 100.0 * hits / Math.max(1, hits + misses),
+                errors.get());
+        return errors.get() == 0;
+    }
+
+    private static void cleanDir(String path) {
+        File dir = new File(path);
+        if (dir.exists()) {
+            for (File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+}
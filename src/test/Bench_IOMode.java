@@ -0,0 +1,85 @@
+package test;
+
+import java.io.File;
+import java.util.Random;
+
+import espaceDisque.DBConfig;
+import espaceDisque.DiskManager;
+import espaceDisque.PageId;
+
+/**
+ * Benchmark des modes d'E/S du DiskManager (dm_iomode).
+ * Lancement : java -cp bin test.Bench_IOMode [nbPages]
+ */
+public class Bench_IOMode {
+
+    public static void main(String[] args) {
+        int nbPages = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+        String[] modes = { "standard", "mmap", "direct" };
+
+        System.out.println("=== Benchmark DiskManager : " + nbPages + " pages de 4096 octets ===");
+        System.out.printf("%-10s %12s %12s %12s %12s%n", "Mode", "Alloc+Write", "Seq Read", "Rand Read", "Finish");
+
+        for (String mode : modes) {
+            runMode(mode, nbPages);
+        }
+    }
+
+    private static void runMode(String mode, int nbPages) {
+        String path = "./BinData_Bench_" + mode;
+        cleanDir(path);
+
+        DBConfig config = new DBConfig(path, 4096, 4, 16, "LRU");
+        config.dm_iomode = mode;
+        DiskManager dm = new DiskManager(config);
+        dm.Init();
+
+        byte[] buff = new byte[config.pagesize];
+        PageId[] pages = new PageId[nbPages];
+
+        // 1. Allocation + écriture de toutes les pages
+        long t0 = System.nanoTime();
+        for (int i = 0; i < nbPages; i++) {
+            pages[i] = dm.AllocPage();
+            buff[0] = (byte) i;
+            dm.WritePage(pages[i], buff);
+        }
+        long tWrite = System.nanoTime() - t0;
+
+        // 2. Lecture séquentielle (style scan complet)
+        t0 = System.nanoTime();
+        long checksum = 0;
+        for (int i = 0; i < nbPages; i++) {
+            dm.ReadPage(pages[i], buff);
+            checksum += buff[0];
+        }
+        long tSeq = System.nanoTime() - t0;
+
+        // 3. Lecture aléatoire (style accès par RecordId)
+        Random rnd = new Random(42);
+        t0 = System.nanoTime();
+        for (int i = 0; i < nbPages; i++) {
+            dm.ReadPage(pages[rnd.nextInt(nbPages)], buff);
+            checksum += buff[0];
+        }
+        long tRand = System.nanoTime() - t0;
+
+        // 4. Fermeture (force des projections en mode mmap)
+        t0 = System.nanoTime();
+        dm.Finish();
+        long tFinish = System.nanoTime() - t0;
+
+        System.out.printf("%-10s %10d ms %10d ms %10d ms %10d ms   (checksum %d)%n", mode,
+                tWrite / 1_000_000, tSeq / 1_000_000, tRand / 1_000_000, tFinish / 1_000_000, checksum);
+
+        cleanDir(path);
+    }
+
+    private static void cleanDir(String path) {
+        File dir = new File(path);
+        if (dir.exists()) {
+            for (File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import espaceDisque.BufferManager;
+import espaceDisque.DBConfig;
+import sgbd.DBManager;
+
+/**
+ * Comparaison du taux de succès (hit ratio) des politiques de remplacement
+ * sur un scénario de commandes (par défaut test_mixed.txt : parcours + insertions).
+ * Lancement : java -cp bin test.Bench_Policies [scenario.txt] [bm_buffercount]
+ */
+public class Bench_Policies {
+
+    public static void main(String[] args) throws IOException {
+        String script = (args.length > 0) ? args[0] : "test_mixed.txt";
+        int bufferCount = (args.length > 1) ? Integer.parseInt(args[1]) : 16;
+        String[] policies = { "LRU", "MRU", "CLOCK", "2Q", "ARC" };
+
+        List<String> commands = Files.readAllLines(Paths.get(script));
+        System.out.println("=== Politiques de remplacement : " + script + ", " + bufferCount + " frames ===");
+        System.out.printf("%-8s %10s %10s %10s %10s%n", "Politique", "Hits", "Misses", "Hit ratio", "Temps");
+
+        for (String policy : policies) {
+            runPolicy(policy, bufferCount, commands);
+        }
+    }
+
+    private static void runPolicy(String policy, int bufferCount, List<String> commands) {
+        String path = "./BinData_Bench_Policies";
+        cleanDir(path);
+
+        // On coupe l'affichage (SELECT, messages d'info) pendant la mesure
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        DBConfig config = new DBConfig(path, 4096, 4, bufferCount, policy);
+        DBManager db = new DBManager(config);
+        db.Init();
+        long t0 = System.nanoTime();
+        for (String line : commands) {
+            String command = line.trim();
+            if (command.isEmpty() || command.startsWith("#") || command.startsWith("//")) continue;
+            if (command.equalsIgnoreCase("EXIT")) break;
+            db.ProcessCommand(command);
+        }
+        long elapsed = System.nanoTime() - t0;
+        BufferManager bm = db.getBufferManager();
+        long hits = bm.getHitCount();
+        long misses = bm.getMissCount();
+        db.Finish();
+        System.setOut(out);
+
+        double ratio = (hits + misses == 0) ? 0 : 100.0 * hits / (hits + misses);
+        System.out.printf("%-9s %10d %10d %9.1f%% %7d ms%n", policy, hits, misses, ratio, elapsed / 1_000_000);
+
+        cleanDir(path);
+    }
+
+    private static void cleanDir(String path) {
+        File dir = new File(path);
+        if (dir.exists()) {
+            for (File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+}
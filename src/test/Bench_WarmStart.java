@@ -0,0 +1,79 @@
+package test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import espaceDisque.BufferManager;
+import espaceDisque.DBConfig;
+import sgbd.DBManager;
+
+/**
+ * Démarrage à froid ou à chaud (bm_warmstart) : temps entre Init et la fin de la première requête,
+ * et nombre de lectures disque (misses) de cette requête.
+ * Lancement (depuis le dossier qui contient S.csv) : java -cp bin test.Bench_WarmStart [bm_buffercount] [nbAppends]
+ */
+public class Bench_WarmStart {
+
+    private static final String PATH = "./BinData_Bench_Warm";
+    private static final String QUERY = "SELECT * FROM S s WHERE s.C5=0";
+
+    public static void main(String[] args) {
+        int bufferCount = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+        int appends = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+        cleanDir(PATH);
+
+        // Session de préparation : la table S est chargée puis parcourue (pages chaudes au Finish)
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        DBManager db = new DBManager(new DBConfig(PATH, 4096, 4, bufferCount, "LRU"));
+        db.Init();
+        db.ProcessCommand("CREATE TABLE S (C1:INT,C2:REAL,C3:INT,C4:INT,C5:INT)");
+        for (int i = 0; i < appends; i++) {
+            db.ProcessCommand("APPEND INTO S ALLRECORDS (S.csv)");
+        }
+        db.ProcessCommand(QUERY);
+        db.Finish();
+        System.setOut(out);
+
+        System.out.println("=== Démarrage à froid / à chaud : " + bufferCount + " frames, " + (191 * appends) + " records ===");
+        System.out.printf("%-8s %12s %14s %10s %14s%n", "Mode", "Init", "1re requête", "Misses", "Préchauffage");
+        run(bufferCount, false);
+        run(bufferCount, true);
+
+        cleanDir(PATH);
+    }
+
+    private static void run(int bufferCount, boolean warm) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        DBConfig config = new DBConfig(PATH, 4096, 4, bufferCount, "LRU");
+        config.bm_warmstart = warm;
+        DBManager db = new DBManager(config);
+        long t0 = System.nanoTime();
+        db.Init();
+        long tInit = System.nanoTime() - t0;
+        BufferManager bm = db.getBufferManager();
+        bm.AwaitWarmUp(10_000); // Le préchauffage a lieu pendant que le client se connecte
+        long missesBefore = bm.getMissCount();
+        long t1 = System.nanoTime();
+        db.ProcessCommand(QUERY);
+        long tQuery = System.nanoTime() - t1;
+        long misses = bm.getMissCount() - missesBefore;
+        String warmup = warm ? bm.getWarmUpPageCount() + " p / " + bm.getWarmUpMillis() + " ms" : "-";
+        db.Finish();
+        System.setOut(out);
+
+        System.out.printf("%-8s %9.2f ms %11.2f ms %10d %14s%n", warm ? "chaud" : "froid",
+                tInit / 1e6, tQuery / 1e6, misses, warmup);
+    }
+
+    private static void cleanDir(String path) {
+        File dir = new File(path);
+        if (dir.exists()) {
+            for (File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+}
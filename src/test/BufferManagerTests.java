@@ -1,11 +1,24 @@
 package test;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import espaceDisque.ARCPolicy;
 import espaceDisque.BufferManager;
+import espaceDisque.BufferPoolFullException;
+import espaceDisque.BufferRing;
+import espaceDisque.BufferStats;
 import espaceDisque.DBConfig;
 import espaceDisque.DiskManager;
+import espaceDisque.PageHandle;
 import espaceDisque.PageId;
+import espaceDisque.TwoQPolicy;
 
 public class BufferManagerTests {
 
@@ -72,8 +85,619 @@ public class BufferManagerTests {
 
         // Fin des tests
         bm.FlushBuffers(); // Juste pour tester que ça ne plante pas
-        
+
+        // --- 3. FLUSH GROUPÉ : pages sales chargées dans le désordre, écrites en un seul run ---
+        DBConfig config8 = new DBConfig("./BinData_BM_Test", 4096, 4, 8, "LRU");
+        BufferManager bm8 = new BufferManager(config8, dm);
+        PageId[] run = new PageId[8];
+        for (int i = 0; i < run.length; i++) {
+            run[i] = dm.AllocPage();
+        }
+        for (int i = run.length - 1; i >= 0; i--) { // ordre inverse du disque
+            byte[] b = bm8.GetPage(run[i]);
+            b[0] = (byte) (10 + i);
+            bm8.FreePage(run[i], true);
+        }
+        long writesBefore = dm.getWriteCalls();
+        bm8.FlushBuffers();
+        long writes = dm.getWriteCalls() - writesBefore;
+        if (writes != 1) {
+            System.out.println("      [KO] FlushBuffers : " + writes + " écritures au lieu d'une seule pour 8 pages contiguës");
+            success = false;
+        }
+        byte[] verif = new byte[config8.pagesize];
+        for (int i = 0; i < run.length; i++) {
+            dm.ReadPage(run[i], verif);
+            if (verif[0] != (byte) (10 + i)) {
+                System.out.println("      [KO] FlushBuffers : contenu incorrect pour " + run[i]);
+                success = false;
+            }
+        }
+
+        // --- 4. TABLE DES PAGES ET POLITIQUES LRU / MRU ---
+        // 3 frames, pages P0..P3 : on accède à P0, P1, P2 puis on re-touche P0.
+        DBConfig config3 = new DBConfig("./BinData_BM_Test", 4096, 4, 3, "LRU");
+        BufferManager bm3 = new BufferManager(config3, dm);
+        PageId p3 = dm.AllocPage();
+        PageId[] trio = { p0, p1, p2, p0 };
+        for (PageId p : trio) {
+            bm3.GetPage(p);
+            bm3.FreePage(p, false);
+        }
+        // LRU : P1 est la plus ancienne -> c'est elle qui part. P0 (re-touchée) reste en mémoire.
+        long readsBefore = dm.getReadCalls();
+        bm3.GetPage(p3);
+        bm3.FreePage(p3, false);
+        bm3.GetPage(p0);
+        bm3.FreePage(p0, false);
+        if (dm.getReadCalls() - readsBefore != 1) {
+            System.out.println("      [KO] LRU : P0 a été éjectée alors qu'elle venait d'être accédée");
+            success = false;
+        }
+        // MRU : la plus récente (P0) part au prochain défaut de page
+        bm3.SetCurrentReplacementPolicy("MRU");
+        bm3.GetPage(p1);
+        bm3.FreePage(p1, false);
+        readsBefore = dm.getReadCalls();
+        bm3.GetPage(p0);
+        bm3.FreePage(p0, false);
+        if (!"MRU".equals(bm3.getCurrentReplacementPolicy()) || dm.getReadCalls() - readsBefore != 1) {
+            System.out.println("      [KO] MRU : la page la plus récente n'a pas été éjectée");
+            success = false;
+        }
+        bm3.SetCurrentReplacementPolicy("FIFO"); // inconnue : on garde MRU
+        if (!"MRU".equals(bm3.getCurrentReplacementPolicy())) {
+            System.out.println("      [KO] Une politique inconnue a remplacé la politique courante");
+            success = false;
+        }
+        // Une page épinglée n'est jamais choisie : avec 3 pages épinglées, la 4e est refusée après l'attente
+        config3.bm_pinwaittimeout = 50;
+        bm3.FlushBuffers();
+        bm3.GetPage(p0);
+        bm3.GetPage(p1);
+        bm3.GetPage(p2);
+        if (bm3.GetPage(p3) != null || bm3.getPinTimeoutCount() != 1) {
+            System.out.println("      [KO] Une frame épinglée a été remplacée");
+            success = false;
+        }
+        bm3.FlushBuffers();
+
+        // --- 5. POLITIQUE CLOCK (seconde chance) ---
+        bm3.SetCurrentReplacementPolicy("CLOCK");
+        for (PageId p : new PageId[] { p0, p1, p2, p3 }) { // P3 éjecte P0 (tous les bits remis à 0)
+            bm3.GetPage(p);
+            bm3.FreePage(p, false);
+        }
+        bm3.GetPage(p1); // P1 reprend son bit de référence
+        bm3.FreePage(p1, false);
+        bm3.GetPage(p0); // L'aiguille épargne P1 et éjecte P2
+        bm3.FreePage(p0, false);
+        readsBefore = dm.getReadCalls();
+        bm3.GetPage(p1);
+        bm3.FreePage(p1, false);
+        long hitReads = dm.getReadCalls() - readsBefore;
+        bm3.GetPage(p2);
+        bm3.FreePage(p2, false);
+        if (!"CLOCK".equals(bm3.getCurrentReplacementPolicy()) || hitReads != 0
+                || dm.getReadCalls() - readsBefore != 1) {
+            System.out.println("      [KO] CLOCK : la seconde chance n'a pas protégé la page référencée");
+            success = false;
+        }
+        bm3.FlushBuffers();
+
+        // --- 6. POLITIQUE 2Q : un parcours ne chasse pas une page réutilisée ---
+        DBConfig config4 = new DBConfig("./BinData_BM_Test", 4096, 4, 4, "2Q");
+        BufferManager bm4 = new BufferManager(config4, dm);
+        PageId hot = dm.AllocPage();
+        PageId[] other = new PageId[4];
+        for (int i = 0; i < other.length; i++) {
+            other[i] = dm.AllocPage();
+        }
+        PageId[] scan = new PageId[20];
+        for (int i = 0; i < scan.length; i++) {
+            scan[i] = dm.AllocPage();
+        }
+        // hot passe par A1in puis A1out, et sa seconde demande l'installe dans Am
+        for (PageId p : new PageId[] { hot, other[0], other[1], other[2], other[3], hot }) {
+            bm4.GetPage(p);
+            bm4.FreePage(p, false);
+        }
+        for (PageId p : scan) { // Parcours complet : les pages ne font que traverser A1in
+            bm4.GetPage(p);
+            bm4.FreePage(p, false);
+        }
+        long missesBefore = bm4.getMissCount();
+        bm4.GetPage(hot);
+        bm4.FreePage(hot, false);
+        if (bm4.getMissCount() != missesBefore || bm4.getHitCount() == 0) {
+            System.out.println("      [KO] 2Q : la page chaude a été éjectée par le parcours");
+            success = false;
+        }
+        bm4.FlushBuffers();
+
+        // 2Q : une victime rendue par le BufferManager (claim perdu) redevient remplaçable
+        TwoQPolicy twoQ = new TwoQPolicy(2);
+        twoQ.onLoad(0, hot);
+        twoQ.onUnpin(0, hot);
+        int victim = twoQ.pickVictim(other[0]);
+        twoQ.onUnpin(victim, hot);
+        if (victim != 0 || twoQ.pickVictim(other[0]) != 0) {
+            System.out.println("      [KO] 2Q : une victime rendue n'est plus jamais choisie");
+            success = false;
+        }
+
+        // --- 7. POLITIQUE ARC : une page accédée deux fois (T2) survit au parcours ---
+        bm4.SetCurrentReplacementPolicy("ARC");
+        for (int i = 0; i < 2; i++) {
+            bm4.GetPage(hot);
+            bm4.FreePage(hot, false);
+        }
+        for (PageId p : scan) {
+            bm4.GetPage(p);
+            bm4.FreePage(p, false);
+        }
+        missesBefore = bm4.getMissCount();
+        bm4.GetPage(hot);
+        bm4.FreePage(hot, false);
+        if (!"ARC".equals(bm4.getCurrentReplacementPolicy()) || bm4.getMissCount() != missesBefore) {
+            System.out.println("      [KO] ARC : la page fréquente a été éjectée par le parcours");
+            success = false;
+        }
+        bm4.FlushBuffers();
+
+        // ARC : même aller-retour pickVictim -> onUnpin, depuis T1 puis depuis T2
+        ARCPolicy arc = new ARCPolicy(2);
+        arc.onLoad(0, hot);
+        arc.onUnpin(0, hot);
+        victim = arc.pickVictim(other[0]);
+        arc.onUnpin(victim, hot);
+        boolean arcBack = (victim == 0 && arc.pickVictim(other[0]) == 0);
+        arc.onLoad(1, other[1]);
+        arc.onHit(1, other[1]); // Deuxième accès : T2
+        arc.onUnpin(1, other[1]);
+        victim = arc.pickVictim(other[2]);
+        arc.onHit(victim, other[1]); // La victime est reprise par un autre thread avant son claim
+        arc.onUnpin(victim, other[1]);
+        if (!arcBack || victim != 1 || arc.pickVictim(other[2]) != 1) {
+            System.out.println("      [KO] ARC : une victime rendue n'est plus jamais choisie");
+            success = false;
+        }
+
+        // --- 8. ANNEAU DE PARCOURS : un parcours ne recycle que les frames de son anneau ---
+        DBConfig config16 = new DBConfig("./BinData_BM_Test", 4096, 4, 16, "LRU");
+        config16.bm_ringsize = 4;
+        BufferManager bm16 = new BufferManager(config16, dm);
+        PageId[] cached = { p0, p1, p2, p3, hot, other[0], other[1], other[2] };
+        for (PageId p : cached) {
+            bm16.GetPage(p);
+            bm16.FreePage(p, false);
+        }
+        BufferRing ring = bm16.NewRing();
+        for (int pass = 0; pass < 3; pass++) { // 60 pages lues avec 8 frames libres seulement
+            for (PageId p : scan) {
+                bm16.GetPage(p, ring);
+                bm16.FreePage(p, false);
+            }
+        }
+        if (ring.size() != 4) {
+            System.out.println("      [KO] Anneau : " + ring.size() + " frames utilisées au lieu de 4");
+            success = false;
+        }
+        bm16.ReleaseRing(ring);
+        missesBefore = bm16.getMissCount();
+        for (PageId p : cached) {
+            bm16.GetPage(p);
+            bm16.FreePage(p, false);
+        }
+        if (bm16.getMissCount() != missesBefore) {
+            System.out.println("      [KO] Anneau : le parcours a éjecté des pages du pool partagé");
+            success = false;
+        }
+        bm16.FlushBuffers();
+
+        // --- 9. FRAMES HORS TAS (bm_memory = offheap) ---
+        DBConfig configOff = new DBConfig("./BinData_BM_Test", 4096, 4, 4, "LRU");
+        configOff.bm_memory = "offheap";
+        BufferManager bmOff = new BufferManager(configOff, dm);
+        for (int i = 0; i < 6; i++) { // 6 pages pour 4 frames : écritures lors des remplacements
+            ByteBuffer page = bmOff.GetPageBuffer(scan[i]);
+            if (page == null || !page.isDirect() || page.capacity() != configOff.pagesize) {
+                System.out.println("      [KO] Offheap : la frame n'est pas une tranche directe de pagesize octets");
+                success = false;
+                break;
+            }
+            page.putInt(100, 7000 + i);
+            bmOff.FreePage(scan[i], true);
+        }
+        try {
+            bmOff.GetPage(scan[0]);
+            System.out.println("      [KO] Offheap : GetPage(byte[]) aurait dû être refusé");
+            success = false;
+        } catch (IllegalStateException e) {
+            // Attendu : il n'y a pas de tableau derrière une frame hors tas
+        }
+        bmOff.FlushBuffers();
+        for (int i = 0; i < 6; i++) {
+            dm.ReadPage(scan[i], verif);
+            if (ByteBuffer.wrap(verif).getInt(100) != 7000 + i) {
+                System.out.println("      [KO] Offheap : contenu perdu pour " + scan[i]);
+                success = false;
+            }
+        }
+
+        // --- 10. ACCÈS CONCURRENTS : épinglages croisés, puis toutes les frames doivent rester remplaçables ---
+        for (String policy : new String[] { "LRU", "MRU", "CLOCK", "2Q", "ARC" }) {
+            if (!concurrentPins(dm, scan, policy)) {
+                success = false;
+            }
+        }
+
+        // --- 11. CHECKPOINT : pages écrites sur le disque mais conservées dans le pool ---
+        DBConfig configCkpt = new DBConfig("./BinData_BM_Test", 4096, 4, 8, "LRU");
+        BufferManager bmCkpt = new BufferManager(configCkpt, dm);
+        for (int i = 0; i < 4; i++) {
+            ByteBuffer page = bmCkpt.GetPageBuffer(scan[i]);
+            page.putInt(200, 8000 + i);
+            bmCkpt.FreePage(scan[i], true);
+        }
+        int written = bmCkpt.Checkpoint();
+        missesBefore = bmCkpt.getMissCount();
+        for (int i = 0; i < 4; i++) {
+            bmCkpt.GetPage(scan[i]);
+            bmCkpt.FreePage(scan[i], false);
+            dm.ReadPage(scan[i], verif);
+            if (ByteBuffer.wrap(verif).getInt(200) != 8000 + i) {
+                System.out.println("      [KO] Checkpoint : " + scan[i] + " non écrite sur le disque");
+                success = false;
+            }
+        }
+        if (written != 4 || bmCkpt.getDirtyCount() != 0 || bmCkpt.getMissCount() != missesBefore) {
+            System.out.println("      [KO] Checkpoint : " + written + " pages écrites, "
+                    + bmCkpt.getDirtyCount() + " sales, pool vidé = " + (bmCkpt.getMissCount() != missesBefore));
+            success = false;
+        }
+        // Page épinglée pendant le checkpoint (en cours de modification) : ignorée, elle reste sale
+        bmCkpt.GetPageBuffer(scan[4]).putInt(200, 8004);
+        bmCkpt.GetPageBuffer(scan[4]);
+        bmCkpt.FreePage(scan[4], true); // Sale, et encore épinglée une fois
+        // Page d'un fichier absent (Data3.bin) : l'écriture échoue, la page doit rester sale
+        PageId noFile = new PageId(3, 0);
+        bmCkpt.GetPageBuffer(noFile);
+        bmCkpt.FreePage(noFile, true);
+        written = bmCkpt.Checkpoint();
+        int dirtyAfter = bmCkpt.getDirtyCount();
+        bmCkpt.FreePage(scan[4], false);
+        if (written != 0 || dirtyAfter != 2) {
+            System.out.println("      [KO] Checkpoint : " + written + " pages écrites, " + dirtyAfter
+                    + " sales (attendu : page épinglée ignorée, échec d'écriture gardé sale)");
+            success = false;
+        }
+        bmCkpt.DiscardFile(3);
+        bmCkpt.Finish();
+
+        // --- 12. WRITER DE FOND : au-delà de bm_dirtyratio, les pages sales sont écrites sans éviction ---
+        DBConfig configBg = new DBConfig("./BinData_BM_Test", 4096, 4, 8, "LRU");
+        configBg.bm_bgwriterdelay = 10;
+        configBg.bm_dirtyratio = 0.25; // Seuil : 2 frames sales sur 8
+        BufferManager bmBg = new BufferManager(configBg, dm);
+        for (int i = 0; i < 6; i++) {
+            ByteBuffer page = bmBg.GetPageBuffer(scan[i]);
+            page.putInt(300, 9000 + i);
+            bmBg.FreePage(scan[i], true);
+        }
+        long deadline = System.currentTimeMillis() + 2000;
+        // Le compteur du writer est mis à jour après l'écriture : on attend les deux
+        while ((bmBg.getDirtyCount() > 2 || bmBg.getBgWrittenPages() == 0) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        if (bmBg.getDirtyCount() > 2 || bmBg.getBgWrittenPages() == 0) {
+            System.out.println("      [KO] Writer de fond : encore " + bmBg.getDirtyCount() + " frames sales");
+            success = false;
+        }
+        bmBg.Finish();
+        for (int i = 0; i < 6; i++) {
+            dm.ReadPage(scan[i], verif);
+            if (ByteBuffer.wrap(verif).getInt(300) != 9000 + i) {
+                System.out.println("      [KO] Writer de fond : contenu perdu pour " + scan[i]);
+                success = false;
+            }
+        }
+
+
+        // --- 13. POOL SATURÉ : les défauts de page attendent une frame, dans l'ordre d'arrivée ---
+        DBConfig configWait = new DBConfig("./BinData_BM_Test", 4096, 4, 2, "LRU");
+        BufferManager bmWait = new BufferManager(configWait, dm);
+        bmWait.GetPage(p0);
+        bmWait.GetPage(p1);
+        List<PageId> servedOrder = Collections.synchronizedList(new ArrayList<>());
+        Thread[] waiters = new Thread[2];
+        PageId[] wanted = { p2, p3 };
+        for (int i = 0; i < waiters.length; i++) {
+            PageId p = wanted[i];
+            waiters[i] = new Thread(() -> {
+                if (bmWait.GetPage(p) != null) {
+                    servedOrder.add(p);
+                    bmWait.FreePage(p, false);
+                }
+            });
+        }
+        try {
+            waiters[0].start();
+            Thread.sleep(50); // P2 est demandée avant P3
+            waiters[1].start();
+            Thread.sleep(50);
+            bmWait.FreePage(p0, false); // Une seule frame libérée : P2 la prend, puis la rend à P3
+            for (Thread t : waiters) {
+                t.join(2000);
+            }
+        } catch (InterruptedException e) {
+            success = false;
+        }
+        if (!servedOrder.equals(List.of(p2, p3)) || bmWait.getPinWaitCount() != 2 || bmWait.getPinWaitMillis() < 50) {
+            System.out.println("      [KO] Attente de frame : servies " + servedOrder + ", "
+                    + bmWait.getPinWaitCount() + " attentes, " + bmWait.getPinWaitMillis() + " ms");
+            success = false;
+        }
+        bmWait.FreePage(p1, false);
+        bmWait.FlushBuffers();
+
+
+        // --- 14. REDIMENSIONNEMENT À CHAUD (resize) ---
+        DBConfig configResize = new DBConfig("./BinData_BM_Test", 4096, 4, 4, "CLOCK");
+        BufferManager bmResize = new BufferManager(configResize, dm);
+        for (int i = 0; i < 4; i++) {
+            ByteBuffer page = bmResize.GetPageBuffer(scan[i]);
+            page.putInt(400, 10000 + i);
+            if (i != 3) { // scan[3] (dernière frame) reste épinglée
+                bmResize.FreePage(scan[i], true);
+            }
+        }
+        if (bmResize.resize(0) || bmResize.resize(2) || bmResize.getFrameCount() != 4) {
+            System.out.println("      [KO] Resize : réduction acceptée malgré une taille invalide ou une frame épinglée");
+            success = false;
+        }
+        bmResize.FreePage(scan[3], true);
+        if (!bmResize.resize(2) || bmResize.getFrameCount() != 2 || !"CLOCK".equals(bmResize.getCurrentReplacementPolicy())) {
+            System.out.println("      [KO] Resize : réduction à 2 frames refusée");
+            success = false;
+        }
+        for (int i = 2; i < 4; i++) { // Pages des frames retirées : écrites avant l'éviction
+            dm.ReadPage(scan[i], verif);
+            if (ByteBuffer.wrap(verif).getInt(400) != 10000 + i) {
+                System.out.println("      [KO] Resize : page sale perdue à la réduction " + scan[i]);
+                success = false;
+            }
+        }
+        configResize.bm_pinwaittimeout = 0;
+        if (!bmResize.resize(8)) {
+            success = false;
+        }
+        for (int i = 0; i < 8; i++) { // 8 pages épinglées en même temps : il faut bien 8 frames
+            if (bmResize.GetPage(scan[i]) == null) {
+                System.out.println("      [KO] Resize : pas de frame pour " + scan[i] + " après agrandissement à 8");
+                success = false;
+            }
+        }
+        for (int i = 0; i < 8; i++) {
+            bmResize.FreePage(scan[i], false);
+        }
+        bmResize.FlushBuffers();
+        for (int i = 0; i < 2; i++) {
+            dm.ReadPage(scan[i], verif);
+            if (ByteBuffer.wrap(verif).getInt(400) != 10000 + i) {
+                System.out.println("      [KO] Resize : page conservée mal écrite " + scan[i]);
+                success = false;
+            }
+        }
+
+        // --- 15. STATISTIQUES : par relation et par politique ---
+        DBConfig configStats = new DBConfig("./BinData_BM_Test", 4096, 4, 2, "LRU");
+        BufferManager bmStats = new BufferManager(configStats, dm);
+        for (PageId p : new PageId[] { p0, p1, p0 }) { // 2 misses puis 1 hit pour A
+            bmStats.GetPageBuffer(p, null, "A");
+            bmStats.FreePage(p, true);
+        }
+        bmStats.SetCurrentReplacementPolicy("CLOCK");
+        bmStats.GetPageBuffer(p2, null, "B"); // Évince une page sale de A
+        bmStats.FreePage(p2, false);
+        BufferStats statsA = bmStats.getRelationStats("A");
+        BufferStats statsB = bmStats.getRelationStats("B");
+        BufferStats statsClock = bmStats.getPolicyStats("CLOCK");
+        if (statsA == null || statsA.getHits() != 1 || statsA.getMisses() != 2 || statsA.getEvictions() != 1
+                || statsA.getDirtyEvictions() != 1 || statsA.getWriteCount() != 1
+                || statsB == null || statsB.getMisses() != 1 || statsB.getReadCount() != 1
+                || statsClock == null || statsClock.getMisses() != 1 || bmStats.getStats().getMisses() != 3
+                || !bmStats.GetStatsReport().contains("politique CLOCK")) {
+            System.out.println("      [KO] Statistiques : compteurs par relation ou par politique incorrects");
+            success = false;
+        }
+        bmStats.FlushBuffers();
+
+        // --- 16. PAGEHANDLE : dépinglage par try-with-resources ---
+        DBConfig configHandle = new DBConfig("./BinData_BM_Test", 4096, 4, 1, "LRU");
+        configHandle.bm_pinwaittimeout = 0;
+        BufferManager bmHandle = new BufferManager(configHandle, dm);
+        PageHandle handle = bmHandle.PinPage(p0);
+        handle.getBuffer().putInt(500, 4242);
+        handle.markDirty();
+        handle.close();
+        handle.close(); // Un second close ne doit pas dépingler deux fois
+        try {
+            PageHandle page = bmHandle.PinPage(p1); // Pool d'une frame : P0 doit être libre et sale
+            try {
+                // Pool saturé : PinPage lève BufferPoolFullException au lieu de renvoyer null
+                bmHandle.PinPage(p0).close();
+                System.out.println("      [KO] PageHandle : PinPage a réussi alors que l'unique frame est épinglée");
+                success = false;
+            } catch (BufferPoolFullException e) {
+                if (!p0.equals(e.getPageId())) {
+                    System.out.println("      [KO] PageHandle : l'exception ne désigne pas la page demandée");
+                    success = false;
+                }
+            }
+            page.close();
+        } catch (BufferPoolFullException e) {
+            System.out.println("      [KO] PageHandle : la frame n'a pas été dépinglée par close()");
+            success = false;
+        }
+        dm.ReadPage(p0, verif);
+        if (ByteBuffer.wrap(verif).getInt(500) != 4242) {
+            System.out.println("      [KO] PageHandle : markDirty() n'a pas fait écrire la page");
+            success = false;
+        }
+        bmHandle.FlushBuffers();
+
+        // --- 17. DÉMARRAGE À CHAUD : pages chaudes sauvegardées au Finish, rechargées par WarmUp ---
+        DBConfig configWarm = new DBConfig("./BinData_BM_Test", 4096, 4, 4, "LRU");
+        configWarm.bm_warmstart = true; // Désactivé par défaut
+        BufferManager bmWarm = new BufferManager(configWarm, dm);
+        for (PageId p : new PageId[] { p0, p1, p2, p3, p0 }) { // Rangs : P0, P3, P2, P1 (la plus froide)
+            bmWarm.GetPage(p);
+            bmWarm.FreePage(p, false);
+        }
+        bmWarm.Finish();
+        BufferManager bmWarm2 = new BufferManager(configWarm, dm);
+        int planned = bmWarm2.WarmUp();
+        if (planned != 4 || !bmWarm2.AwaitWarmUp(2000) || bmWarm2.getWarmUpPageCount() != 4) {
+            System.out.println("      [KO] Démarrage à chaud : " + planned + " pages prévues, "
+                    + bmWarm2.getWarmUpPageCount() + " rechargées");
+            success = false;
+        }
+        bmWarm2.GetPage(scan[10]); // Pool plein : la victime doit être P1, la moins récente avant l'arrêt
+        bmWarm2.FreePage(scan[10], false);
+        missesBefore = bmWarm2.getMissCount();
+        for (PageId p : new PageId[] { p0, p2, p3 }) {
+            bmWarm2.GetPage(p);
+            bmWarm2.FreePage(p, false);
+        }
+        if (bmWarm2.getMissCount() != missesBefore) {
+            System.out.println("      [KO] Démarrage à chaud : l'ordre d'accès d'avant l'arrêt n'a pas été restauré");
+            success = false;
+        }
+        bmWarm2.FlushBuffers();
+
+        // --- 18. LECTURE ANTICIPÉE : les pages demandées par Prefetch sont en mémoire au GetPage ---
+        DBConfig configRa = new DBConfig("./BinData_BM_Test", 4096, 4, 32, "LRU");
+        configRa.bm_ringsize = 8; // Anneau de 8 frames : 4 pages d'avance au plus
+        BufferManager bmRa = new BufferManager(configRa, dm);
+        BufferRing raRing = bmRa.NewRing();
+        List<PageId> ahead = new ArrayList<>();
+        for (int i = 0; i < bmRa.getReadAheadDepth(raRing); i++) {
+            ahead.add(scan[i]);
+        }
+        bmRa.Prefetch(ahead, raRing, "A");
+        if (ahead.size() != 4 || !bmRa.AwaitReadAhead(2000) || bmRa.getPrefetchedPages() != 4) {
+            System.out.println("      [KO] Lecture anticipée : " + bmRa.getPrefetchedPages() + " pages lues d'avance sur " + ahead.size());
+            success = false;
+        }
+        missesBefore = bmRa.getMissCount();
+        for (PageId p : ahead) {
+            bmRa.GetPage(p, raRing);
+            bmRa.FreePage(p, false);
+        }
+        if (bmRa.getMissCount() != missesBefore || raRing.size() != 4) {
+            System.out.println("      [KO] Lecture anticipée : pages relues ou chargées hors de l'anneau");
+            success = false;
+        }
+        bmRa.ReleaseRing(raRing);
+        bmRa.Prefetch(List.of(scan[10]), raRing, "A"); // Anneau rendu : la page va dans le pool partagé
+        bmRa.AwaitReadAhead(2000);
+        if (raRing.size() != 0) {
+            System.out.println("      [KO] Lecture anticipée : un anneau rendu a repris une frame");
+            success = false;
+        }
+        bmRa.Finish();
+
         if (success) System.out.println("   [OK] Tests BufferManager (Remplacement & Dirty) validés.");
         return success;
     }
+
+    /**
+     * 4 threads épinglent et dépinglent les mêmes pages sur un pool de 8 frames (anneaux, lectures
+     * anticipées, pages sales) pendant qu'un cinquième enchaîne les CHECKPOINT et que le writer de fond
+     * tourne : les victimes abandonnées et les écritures concurrentes rendent des frames à la politique.
+     * À la fin, plus rien n'est épinglé et 8 nouvelles pages doivent pouvoir être épinglées ensemble.
+     */
+    private static boolean concurrentPins(DiskManager dm, PageId[] pages, String policy) {
+        DBConfig config = new DBConfig("./BinData_BM_Test", 4096, 4, 8, policy);
+        config.bm_bgwriterdelay = 1;
+        config.bm_dirtyratio = 0.1;
+        config.bm_pinwaittimeout = 2000;
+        BufferManager bm = new BufferManager(config, dm);
+        AtomicInteger errors = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            final int id = t;
+            workers[t] = new Thread(() -> {
+                Random rnd = new Random(id);
+                try {
+                    for (int op = 0; op < 2000; op++) {
+                        PageId p = pages[rnd.nextInt(pages.length)];
+                        if (op % 50 == 0) {
+                            BufferRing ring = bm.NewRing();
+                            for (int i = 0; i < 3; i++) {
+                                bm.PinPage(pages[rnd.nextInt(pages.length)], ring, "R").close();
+                            }
+                            bm.ReleaseRing(ring);
+                        } else if (op % 50 == 25) {
+                            bm.Prefetch(List.of(p), null, "P");
+                        } else {
+                            try (PageHandle h = bm.PinPage(p)) {
+                                if (rnd.nextInt(4) == 0) {
+                                    h.markDirty();
+                                }
+                            }
+                        }
+                    }
+                } catch (BufferPoolFullException e) {
+                    errors.incrementAndGet();
+                }
+            });
+        }
+        Thread checkpointer = new Thread(() -> {
+            while (running.get()) {
+                bm.Checkpoint();
+            }
+        });
+        checkpointer.start();
+        for (Thread w : workers) {
+            w.start();
+        }
+        try {
+            for (Thread w : workers) {
+                w.join();
+            }
+            running.set(false);
+            checkpointer.join();
+        } catch (InterruptedException e) {
+            System.out.println("      [KO] Accès concurrents (" + policy + ") interrompus");
+            return false;
+        }
+        bm.AwaitReadAhead(2000);
+
+        boolean ok = (errors.get() == 0 && bm.getPinnedCount() == 0);
+        List<PageHandle> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                held.add(bm.PinPage(dm.AllocPage()));
+            }
+        } catch (BufferPoolFullException e) {
+            ok = false;
+        }
+        if (!ok) {
+            System.out.println("      [KO] Accès concurrents (" + policy + ") : " + errors.get() + " pools saturés, "
+                    + bm.getPinnedCount() + " frames épinglées, " + held.size() + "/8 nouvelles pages épinglées");
+        }
+        for (PageHandle h : held) {
+            h.close();
+        }
+        bm.Finish();
+        return ok;
+    }
 }
\ No newline at end of file
@@ -37,6 +37,10 @@ public class DBConfigTests {
             out.println("dm_maxfilecount = 50");
             out.println("bm_buffercount = 25");
             out.println("bm_policy = MRU");
+            out.println("dm_iomode = mmap");
+            out.println("dm_maxpagesperfile = 1000");
+            out.println("dm_allocpolicy = ROUNDROBIN");
+            out.println("bm_warmstart = true");
         } catch (FileNotFoundException e) {
             System.out.println("      [KO] Impossible de créer le fichier de test sur le disque");
             return false; // Impossible de continuer ce test
@@ -56,6 +60,17 @@ public class DBConfigTests {
             System.out.println("      [KO] Lecture fichier : valeurs lues incorrectes");
             System.out.println("           Lu: Size=" + configFile.pagesize + ", Policy=" + configFile.bm_policy);
             success = false;
+        } else if (!configFile.dm_iomode.equals("mmap")
+                || configFile.dm_maxpagesperfile != 1000
+                || !configFile.dm_allocpolicy.equals("ROUNDROBIN")) {
+
+            System.out.println("      [KO] Lecture fichier : options du DiskManager incorrectes");
+            System.out.println("           Lu: IOMode=" + configFile.dm_iomode + ", MaxPages=" + configFile.dm_maxpagesperfile
+                    + ", Alloc=" + configFile.dm_allocpolicy);
+            success = false;
+        } else if (!configFile.bm_warmstart || configMem.bm_warmstart) {
+            System.out.println("      [KO] bm_warmstart : désactivé par défaut, activé par la clé du fichier");
+            success = false;
         }
 
         // Nettoyage : on supprime le fichier temporaire pour ne pas polluer
@@ -107,8 +107,26 @@ public class DiskManagerTests {
             success = false;
         }
 
+        // --- 6b. TEST DU POOL DE FICHIERS ---
+        // Toutes les opérations précédentes portent sur Data0.bin : une seule ouverture attendue
+        if (dm.getOpenedHandles() != 1) {
+            System.out.println("      [KO] Le fichier a été rouvert (" + dm.getOpenedHandles() + " ouvertures au lieu de 1)");
+            success = false;
+        }
+
+        // --- 6c. LECTURE D'UN FICHIER INCONNU : erreur, sans créer de DataN.bin vide ---
+        dm.ReadPage(new PageId(3, 0), new byte[config.pagesize]);
+        if (new File("./BinData_Test/Data3.bin").exists()) {
+            System.out.println("      [KO] ReadPage a créé Data3.bin au lieu d'échouer");
+            success = false;
+        }
+
         // Arrêt du système
         dm.Finish();
+        if (dm.getOpenFileCount() != 0) {
+            System.out.println("      [KO] Finish n'a pas fermé les fichiers du pool");
+            success = false;
+        }
 
         // --- 7. TEST DE PERSISTANCE (STOP & START) ---
         // Ici, on NE NETTOIE PAS, car on veut vérifier que les données sont restées !
@@ -135,6 +153,13 @@ public class DiskManagerTests {
         // --- 8. TEST DÉSALLOCATION (Le petit dernier) ---
         // On alloue une page "extra"
         PageId pageExtra = dm2.AllocPage(); 
+        // Extents : le fichier a été agrandi de 64 pages d'un coup, mais l'allocation reprend
+        // juste après la dernière page attribuée (pid3) grâce à la carte sauvegardée par Finish
+        File data0 = new File("./BinData_Test/Data0.bin");
+        if (pageExtra.PageIdx != 3 || data0.length() != 64L * config.pagesize) {
+            System.out.println("      [KO] Extent : page " + pageExtra + " / taille fichier " + data0.length());
+            success = false;
+        }
         // On la libère
         dm2.DeallocPage(pageExtra);
         // On demande une nouvelle page. Normalement, le DiskManager doit nous rendre celle qu'on vient de libérer
@@ -146,9 +171,174 @@ public class DiskManagerTests {
             System.out.println("      [WARN] Désallocation non optimale (Pas de réutilisation).");
             // Ce n'est pas bloquant, donc on ne met pas success = false
         }
-        
+
+        // --- 8b. PERSISTANCE DES PAGES LIBRES (bitmap sauvegardé par Finish) ---
+        dm2.DeallocPage(pageRecycle);
+        dm2.DeallocPage(pageRecycle); // Double libération : ne doit pas être comptée deux fois
         dm2.Finish();
 
+        DiskManager dmFree = new DiskManager(config);
+        dmFree.Init();
+        if (dmFree.getFreePageCount() != 1) {
+            System.out.println("      [KO] Pages libres perdues au redémarrage (" + dmFree.getFreePageCount() + " au lieu de 1)");
+            success = false;
+        }
+        PageId afterRestart = dmFree.AllocPage();
+        if (!pageRecycle.equals(afterRestart)) {
+            System.out.println("      [KO] La page libérée avant l'arrêt n'est pas réutilisée : " + afterRestart);
+            success = false;
+        }
+        dmFree.Finish();
+
+        // --- 9. TEST DU MODE MMAP (mêmes fichiers, relus par projection mémoire) ---
+        DBConfig configMmap = new DBConfig("./BinData_Test", 4096, 4, 16, "LRU");
+        configMmap.dm_iomode = "mmap";
+        DiskManager dm3 = new DiskManager(configMmap);
+        dm3.Init();
+
+        byte[] bufferMmap = new byte[configMmap.pagesize];
+        dm3.ReadPage(pid3, bufferMmap);
+        if (!msgP3.equals(new String(bufferMmap, 0, msgP3.getBytes().length, StandardCharsets.UTF_8))) {
+            System.out.println("      [KO] Mode mmap : la page 3 n'est pas relue correctement.");
+            success = false;
+        }
+
+        // Page allouée après la projection : la projection doit suivre l'agrandissement du fichier
+        PageId pidMmap = dm3.AllocPage();
+        bufferMmap[0] = (byte) 'M';
+        dm3.WritePage(pidMmap, bufferMmap);
+
+        // Chargement en masse : une projection par extent ajouté au fichier, pas une par nouvelle page
+        PageId lastMmap = pidMmap;
+        for (int i = 0; i < 200; i++) {
+            lastMmap = dm3.AllocPage();
+            dm3.WritePage(lastMmap, bufferMmap);
+        }
+        int maxMappings = 2 + 201 / configMmap.dm_extentsize;
+        if (dm3.getMappingCount() > maxMappings) {
+            System.out.println("      [KO] Mode mmap : " + dm3.getMappingCount() + " projections pour un seul segment");
+            success = false;
+        }
+        // La projection ne doit pas agrandir le fichier au-delà de l'extent courant
+        long mmapFileSize = new File("./BinData_Test/Data" + lastMmap.FileIdx + ".bin").length();
+        if (mmapFileSize > (long) (lastMmap.PageIdx + configMmap.dm_extentsize) * configMmap.pagesize) {
+            System.out.println("      [KO] Mode mmap : fichier agrandi à " + mmapFileSize + " octets par la projection");
+            success = false;
+        }
+        dm3.Finish();
+
+        DiskManager dm4 = new DiskManager(config); // relecture en mode standard
+        dm4.Init();
+        byte[] checkMmap = new byte[config.pagesize];
+        dm4.ReadPage(pidMmap, checkMmap);
+        if (checkMmap[0] != (byte) 'M') {
+            System.out.println("      [KO] Mode mmap : écriture non persistée après Finish.");
+            success = false;
+        }
+        dm4.Finish();
+
+        // --- 10. TEST RÉPARTITION MULTI-FICHIERS (dm_maxfilecount / dm_maxpagesperfile) ---
+        File stripeDir = new File("./BinData_Test_Stripe");
+        if (stripeDir.exists()) {
+            for (File f : stripeDir.listFiles()) f.delete();
+            stripeDir.delete();
+        }
+        // 2 fichiers de 2 pages max : FILL remplit Data0 puis Data1, puis refuse
+        DBConfig configFill = new DBConfig("./BinData_Test_Stripe", 4096, 2, 16, "LRU");
+        configFill.dm_maxpagesperfile = 2;
+        DiskManager dmFill = new DiskManager(configFill);
+        dmFill.Init();
+        String placement = "";
+        for (int i = 0; i < 4; i++) {
+            placement += dmFill.AllocPage() + " ";
+        }
+        if (!placement.equals("PageId(0, 0) PageId(0, 1) PageId(1, 0) PageId(1, 1) ")) {
+            System.out.println("      [KO] Politique FILL : placement inattendu : " + placement);
+            success = false;
+        }
+        if (dmFill.AllocPage() != null) {
+            System.out.println("      [KO] Politique FILL : allocation acceptée alors que tous les fichiers sont pleins.");
+            success = false;
+        }
+        dmFill.Finish();
+        for (File f : stripeDir.listFiles()) f.delete();
+
+        // ROUNDROBIN : les pages alternent entre les fichiers
+        DBConfig configRR = new DBConfig("./BinData_Test_Stripe", 4096, 2, 16, "LRU");
+        configRR.dm_allocpolicy = "ROUNDROBIN";
+        DiskManager dmRR = new DiskManager(configRR);
+        dmRR.Init();
+        placement = "";
+        for (int i = 0; i < 4; i++) {
+            placement += dmRR.AllocPage() + " ";
+        }
+        if (!placement.equals("PageId(0, 0) PageId(1, 0) PageId(0, 1) PageId(1, 1) ")) {
+            System.out.println("      [KO] Politique ROUNDROBIN : placement inattendu : " + placement);
+            success = false;
+        }
+        dmRR.Finish();
+
+        // --- 11. TEST E/S GROUPÉES (WritePages / ReadPages), dans les trois modes d'E/S ---
+        for (String mode : new String[] { "standard", "mmap", "direct" }) {
+            DBConfig configVec = new DBConfig("./BinData_Test", 4096, 4, 16, "LRU");
+            configVec.dm_iomode = mode;
+            DiskManager dmVec = new DiskManager(configVec);
+            dmVec.Init();
+
+            // 3 pages contiguës + 1 page isolée (2 runs)
+            java.util.List<PageId> vecPages = new java.util.ArrayList<>();
+            for (int i = 0; i < 3; i++) vecPages.add(dmVec.AllocPage());
+            vecPages.add(pid1);
+            java.nio.ByteBuffer[] outBuffs = new java.nio.ByteBuffer[vecPages.size()];
+            java.nio.ByteBuffer[] inBuffs = new java.nio.ByteBuffer[vecPages.size()];
+            for (int i = 0; i < outBuffs.length; i++) {
+                outBuffs[i] = java.nio.ByteBuffer.allocate(configVec.pagesize);
+                outBuffs[i].putInt(0, 1000 + i);
+                outBuffs[i].putInt(configVec.pagesize - 4, 2000 + i);
+                inBuffs[i] = java.nio.ByteBuffer.allocate(configVec.pagesize);
+            }
+            dmVec.WritePages(vecPages, outBuffs);
+            dmVec.ReadPages(vecPages, inBuffs);
+            for (int i = 0; i < inBuffs.length; i++) {
+                if (inBuffs[i].getInt(0) != 1000 + i || inBuffs[i].getInt(configVec.pagesize - 4) != 2000 + i) {
+                    System.out.println("      [KO] E/S groupées (" + mode + ") : page " + vecPages.get(i) + " incorrecte");
+                    success = false;
+                }
+            }
+            // On remet la page 1 d'origine pour ne pas perturber la suite
+            dmVec.WritePage(pid1, bufferEcriture);
+            dmVec.Finish();
+        }
+
+        // --- 11b. MODE DIRECT : un run plus long que le buffer de transit est traité par morceaux ---
+        DBConfig configLong = new DBConfig("./BinData_Test", 4096, 4, 16, "LRU");
+        configLong.dm_iomode = "direct";
+        DiskManager dmLong = new DiskManager(configLong);
+        dmLong.Init();
+        java.util.List<PageId> longRun = new java.util.ArrayList<>();
+        for (int i = 0; i < 150; i++) longRun.add(dmLong.AllocPage());
+        java.nio.ByteBuffer[] longOut = new java.nio.ByteBuffer[longRun.size()];
+        java.nio.ByteBuffer[] longIn = new java.nio.ByteBuffer[longRun.size()];
+        for (int i = 0; i < longOut.length; i++) {
+            longOut[i] = java.nio.ByteBuffer.allocate(configLong.pagesize).putInt(0, 3000 + i);
+            longIn[i] = java.nio.ByteBuffer.allocate(configLong.pagesize);
+        }
+        long readsBefore = dmLong.getReadCalls();
+        dmLong.WritePages(longRun, longOut);
+        dmLong.ReadPages(longRun, longIn);
+        for (int i = 0; i < longIn.length; i++) {
+            if (longIn[i].getInt(0) != 3000 + i) {
+                System.out.println("      [KO] E/S groupées (direct, run long) : page " + longRun.get(i) + " incorrecte");
+                success = false;
+                break;
+            }
+        }
+        if (dmLong.getReadCalls() - readsBefore != 3) { // 150 pages = 64 + 64 + 22
+            System.out.println("      [KO] Run long en mode direct : " + (dmLong.getReadCalls() - readsBefore) + " lectures au lieu de 3");
+            success = false;
+        }
+        dmLong.Finish();
+
         if (success) {
             System.out.println("   [OK] Tests DiskManager validés.");
         }
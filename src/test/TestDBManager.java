@@ -1,6 +1,7 @@
 package test;
 
 import java.io.File;
+import espaceDisque.BufferStats;
 import espaceDisque.DBConfig;
 import sgbd.DBManager;
 import donnees.Relation;
@@ -57,8 +58,176 @@ public class TestDBManager {
         }
 
         dbm.Finish();
+
+        // 6. Mode "un fichier par relation" (dm_filemode = RELATION)
+        if (!testFichierParRelation()) success = false;
+
+        // 7. Frames hors tas (bm_memory = offheap)
+        if (!testFramesHorsTas()) success = false;
+
+        // 8. CHECKPOINT puis arrêt brutal (pas de Finish)
+        if (!testCheckpoint()) success = false;
+
+        // 9. SET BUFFERCOUNT autour d'un APPEND
+        if (!testSetBufferCount()) success = false;
         
         if (success) System.out.println("   [OK] TP6 validé.");
         return success;
     }
-}
\ No newline at end of file
+
+    /**
+     * Chaque table a son propre DataN.bin : DROP TABLE supprime le fichier sans toucher aux autres tables.
+     */
+    private static boolean testFichierParRelation() {
+        File testDir = new File("./BinData_TP6_Rel");
+        if (testDir.exists()) {
+            for (File f : testDir.listFiles()) f.delete();
+            testDir.delete();
+        }
+
+        DBConfig config = new DBConfig("./BinData_TP6_Rel", 4096, 4, 16, "LRU");
+        config.dm_filemode = "RELATION";
+        DBManager dbm = new DBManager(config);
+        dbm.Init();
+
+        boolean success = true;
+        dbm.ProcessCommand("CREATE TABLE A (X:INT)");
+        dbm.ProcessCommand("CREATE TABLE B (X:INT)");
+        dbm.ProcessCommand("INSERT INTO A VALUES (1)");
+        dbm.ProcessCommand("INSERT INTO B VALUES (2)");
+
+        Relation relA = dbm.GetRelation("A");
+        Relation relB = dbm.GetRelation("B");
+        if (relA.getOwnFile() == relB.getOwnFile() || relA.getOwnFile() == -1) {
+            System.out.println("      [KO] Les tables A et B ne sont pas dans des fichiers séparés.");
+            success = false;
+        }
+
+        File fileA = new File(testDir, "Data" + relA.getOwnFile() + ".bin");
+        dbm.ProcessCommand("DROP TABLE A");
+        if (fileA.exists()) {
+            System.out.println("      [KO] DROP TABLE n'a pas supprimé le fichier de la table A.");
+            success = false;
+        }
+        if (relB.GetAllRecords().size() != 1) {
+            System.out.println("      [KO] La table B a été abîmée par le DROP de A.");
+            success = false;
+        }
+
+        dbm.Finish();
+        return success;
+    }
+
+    /**
+     * Import, DELETE et UPDATE avec un pool hors tas, puis relecture après redémarrage en mode heap.
+     */
+    private static boolean testFramesHorsTas() {
+        File testDir = new File("./BinData_TP6_Off");
+        if (testDir.exists()) {
+            for (File f : testDir.listFiles()) f.delete();
+            testDir.delete();
+        }
+
+        DBConfig config = new DBConfig("./BinData_TP6_Off", 4096, 4, 8, "LRU");
+        config.bm_memory = "offheap";
+        DBManager dbm = new DBManager(config);
+        dbm.Init();
+
+        boolean success = true;
+        dbm.ProcessCommand("CREATE TABLE S (C1:INT,C2:REAL,C3:INT,C4:INT,C5:INT)");
+        dbm.ProcessCommand("APPEND INTO S ALLRECORDS (S.csv)");
+        int total = dbm.GetRelation("S").GetAllRecords().size();
+        dbm.ProcessCommand("DELETE S s WHERE s.C5=0");
+        dbm.ProcessCommand("UPDATE S s SET s.C4=-1 WHERE s.C5=1");
+        int remaining = dbm.GetRelation("S").GetAllRecords().size();
+        dbm.Finish();
+        if (total != 191 || remaining >= total) {
+            System.out.println("      [KO] Offheap : " + total + " records importés, " + remaining + " après DELETE");
+            success = false;
+        }
+
+        DBConfig heapConfig = new DBConfig("./BinData_TP6_Off", 4096, 4, 8, "LRU");
+        DBManager dbm2 = new DBManager(heapConfig);
+        dbm2.Init();
+        Relation rel = dbm2.GetRelation("S");
+        if (rel == null || rel.GetAllRecords().size() != remaining) {
+            System.out.println("      [KO] Offheap : les pages écrites depuis les frames hors tas sont incomplètes.");
+            success = false;
+        }
+        dbm2.Finish();
+        return success;
+    }
+
+    /**
+     * Après CHECKPOINT, un redémarrage sans Finish (arrêt brutal) retrouve la table et ses records.
+     */
+    private static boolean testCheckpoint() {
+        File testDir = new File("./BinData_TP6_Ckpt");
+        if (testDir.exists()) {
+            for (File f : testDir.listFiles()) f.delete();
+            testDir.delete();
+        }
+
+        DBConfig config = new DBConfig("./BinData_TP6_Ckpt", 4096, 4, 16, "LRU");
+        DBManager dbm = new DBManager(config);
+        dbm.Init();
+        dbm.ProcessCommand("CREATE TABLE S (C1:INT,C2:REAL,C3:INT,C4:INT,C5:INT)");
+        dbm.ProcessCommand("APPEND INTO S ALLRECORDS (S.csv)");
+        dbm.ProcessCommand("CHECKPOINT");
+        int total = dbm.GetRelation("S").GetAllRecords().size();
+        // Pas de dbm.Finish() : on simule un arrêt brutal
+
+        boolean success = true;
+        DBConfig config2 = new DBConfig("./BinData_TP6_Ckpt", 4096, 4, 16, "LRU");
+        DBManager dbm2 = new DBManager(config2);
+        dbm2.Init();
+        Relation rel = dbm2.GetRelation("S");
+        if (rel == null || rel.GetAllRecords().size() != total) {
+            System.out.println("      [KO] Checkpoint : " + (rel == null ? "table perdue" : rel.GetAllRecords().size()
+                    + " records retrouvés au lieu de " + total));
+            success = false;
+        }
+        dbm2.Finish();
+        return success;
+    }
+
+    /**
+     * Pool agrandi avant un APPEND puis réduit : les records sont tous retrouvés.
+     */
+    private static boolean testSetBufferCount() {
+        File testDir = new File("./BinData_TP6_Resize");
+        if (testDir.exists()) {
+            for (File f : testDir.listFiles()) f.delete();
+            testDir.delete();
+        }
+
+        DBConfig config = new DBConfig("./BinData_TP6_Resize", 4096, 4, 4, "LRU");
+        DBManager dbm = new DBManager(config);
+        dbm.Init();
+        dbm.ProcessCommand("CREATE TABLE S (C1:INT,C2:REAL,C3:INT,C4:INT,C5:INT)");
+        dbm.ProcessCommand("SET BUFFERCOUNT 64");
+        int grown = dbm.getBufferManager().getFrameCount();
+        dbm.ProcessCommand("APPEND INTO S ALLRECORDS (S.csv)");
+        dbm.ProcessCommand("SET BUFFERCOUNT 4");
+        int shrunk = dbm.getBufferManager().getFrameCount();
+        int count = dbm.GetRelation("S").GetAllRecords().size();
+
+        // Les pages de S sont comptées pour S dans SHOW BUFFER STATS
+        dbm.ProcessCommand("SHOW BUFFER STATS");
+        BufferStats stats = dbm.getBufferManager().getRelationStats("S");
+        BufferStats total = dbm.getBufferManager().getStats();
+        dbm.Finish();
+
+        boolean success = true;
+        if (grown != 64 || shrunk != 4 || count != 191) {
+            System.out.println("      [KO] SET BUFFERCOUNT : " + grown + " puis " + shrunk + " frames, " + count + " records");
+            success = false;
+        }
+        if (stats == null || stats.getMisses() == 0 || stats.getReadCount() != stats.getMisses()
+                || stats.getHits() + stats.getMisses() > total.getHits() + total.getMisses()) {
+            System.out.println("      [KO] SHOW BUFFER STATS : compteurs de la relation S incohérents");
+            success = false;
+        }
+        return success;
+    }
+}
@@ -1,6 +1,7 @@
 package test;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,8 +9,10 @@ import donnees.ColInfo;
 import donnees.Record;
 import donnees.RecordId;
 import donnees.Relation;
+import donnees.RelationScanner;
 import donnees.ColInfo.ColType;
 import espaceDisque.BufferManager;
+import espaceDisque.BufferPoolFullException;
 import espaceDisque.DBConfig;
 import espaceDisque.DiskManager;
 import espaceDisque.PageId;
@@ -100,11 +103,211 @@ public class TestHeapFile {
             success = false;
         }
 
+        // --- 4. PARCOURS PAGE PAR PAGE (RelationScanner) ---
+        // Mêmes records que GetAllRecords, dans le même ordre, avec une seule page épinglée à la fois
+        RelationScanner scanner = new RelationScanner(rel);
+        int scanned = 0;
+        boolean sameOrder = true;
+        Record rec;
+        while ((rec = scanner.GetNextRecord()) != null) {
+            if (scanned < allRecs.size() && !rec.values.equals(allRecs.get(scanned).values)) {
+                sameOrder = false;
+            }
+            scanned++;
+            if (scanned == 100 && bm.getPinnedCount() != 1) {
+                System.out.println("      [KO] Scanner : " + bm.getPinnedCount() + " pages épinglées en cours de parcours (attendu 1).");
+                success = false;
+            }
+        }
+        if (scanned != nbRecords || !sameOrder) {
+            System.out.println("      [KO] Scanner : " + scanned + " records lus (attendu " + nbRecords + "), ordre conforme = " + sameOrder);
+            success = false;
+        }
+
+        // Reset : le parcours reprend au début du chaînage
+        scanner.Reset();
+        int rescanned = 0;
+        while (scanner.GetNextRecord() != null) {
+            rescanned++;
+        }
+        // Close en plein parcours : plus aucune page épinglée
+        scanner.Reset();
+        scanner.GetNextRecord();
+        scanner.Close();
+        if (rescanned != nbRecords || bm.getPinnedCount() != 0) {
+            System.out.println("      [KO] Scanner après Reset : " + rescanned + " records, " + bm.getPinnedCount() + " pages encore épinglées.");
+            success = false;
+        } else {
+            System.out.println("      [OK] RelationScanner page par page (Reset et Close compris).");
+        }
+
+        // --- 5. RÉPERTOIRE DES PAGES (slots libres) ---
+        int pageCount = rel.getDataPages().size();
+        int slotCount = rel.getSlotCount();
+        if (rel.getFreeSlotCount() != pageCount * slotCount - nbRecords) {
+            System.out.println("      [KO] Répertoire : " + rel.getFreeSlotCount() + " slots libres (attendu " + (pageCount * slotCount - nbRecords) + ")");
+            success = false;
+        }
+        // Après suppression, les slots libérés sont réutilisés sans nouvelle page
+        int deleted = rel.DeleteRecords(null);
+        rel.InsertRecord(new Record("Retour", 1));
+        if (deleted != nbRecords || rel.getDataPages().size() != pageCount || rel.getFreeSlotCount() != pageCount * slotCount - 1) {
+            System.out.println("      [KO] Répertoire après DELETE : " + deleted + " supprimés, " + rel.getDataPages().size()
+                    + " pages, " + rel.getFreeSlotCount() + " slots libres");
+            success = false;
+        }
+
+        bm.Finish();
         dm.Finish();
+
+        success &= testDirectoryOverflow(cols);
+        success &= testPoolExhausted(cols);
         
         if (success) {
             System.out.println("   [OK] Tests HeapFile (Multi-Pages) validés.");
         }
         return success;
     }
-}
\ No newline at end of file
+
+    /**
+     * Petites pages : le répertoire déborde de la Header Page, et une table à l'ancien format
+     * (listes chaînées) est convertie en répertoire par setManagers.
+     */
+    private static boolean testDirectoryOverflow(List<ColInfo> cols) {
+        boolean success = true;
+        File testDir = new File("./BinData_HeapDir");
+        if (testDir.exists()) {
+            for (File f : testDir.listFiles()) f.delete();
+            testDir.delete();
+        }
+        // 128 octets : 2 slots par page de données, 9 entrées par page de répertoire
+        DBConfig config = new DBConfig("./BinData_HeapDir", 128, 4, 16, "LRU");
+        DiskManager dm = new DiskManager(config);
+        dm.Init();
+        BufferManager bm = new BufferManager(config, dm);
+
+        Relation rel = new Relation("Petite", cols, dm, bm, null, config);
+        rel.createHeaderPage();
+        for (int i = 0; i < 60; i++) {
+            rel.InsertRecord(new Record("R" + i, i));
+        }
+        int pages = rel.getDataPages().size();
+        int overflow = rel.getDirectoryOverflowPages().size();
+        if (pages != 30 || overflow != 3 || rel.GetAllRecords().size() != 60) {
+            System.out.println("      [KO] Débordement du répertoire : " + pages + " pages, " + overflow + " pages de débordement");
+            success = false;
+        }
+
+        // Ancien format : Header Page = [tête Libres][tête Pleines], pages chaînées par Next (octets 8 et 12)
+        PageId header = dm.AllocPage();
+        PageId pageA = dm.AllocPage();
+        PageId pageB = dm.AllocPage();
+        Relation old = new Relation("Ancienne", cols, dm, bm, header, config);
+        int slots = old.getSlotCount();
+
+        ByteBuffer buff = ByteBuffer.allocate(config.pagesize);
+        buff.putInt(0, pageA.FileIdx).putInt(4, pageA.PageIdx).putInt(8, pageB.FileIdx).putInt(12, pageB.PageIdx);
+        dm.WritePage(header, buff.array());
+
+        buff = ByteBuffer.allocate(config.pagesize);
+        buff.putInt(0, -1).putInt(4, -1).putInt(8, -1).putInt(12, -1);
+        buff.put(16, (byte) 1);
+        old.writeRecordToBuffer(new Record("Libre", 7), buff, 16 + slots);
+        dm.WritePage(pageA, buff.array());
+
+        buff = ByteBuffer.allocate(config.pagesize);
+        buff.putInt(0, -1).putInt(4, -1).putInt(8, -1).putInt(12, -1);
+        for (int i = 0; i < slots; i++) {
+            buff.put(16 + i, (byte) 1);
+            old.writeRecordToBuffer(new Record("Plein" + i, i), buff, 16 + slots + i * 48); // VARCHAR(20) + INT = 48 octets
+        }
+        dm.WritePage(pageB, buff.array());
+
+        old.setManagers(dm, bm);
+        List<PageId> oldPages = old.getDataPages();
+        if (oldPages.size() != 2 || !oldPages.get(0).equals(pageA) || old.getFreeSlotCount() != slots - 1
+                || old.GetAllRecords().size() != 1 + slots) {
+            System.out.println("      [KO] Conversion de l'ancien format : " + oldPages.size() + " pages, "
+                    + old.getFreeSlotCount() + " slots libres");
+            success = false;
+        }
+
+        bm.Finish();
+        dm.Finish();
+        if (success) {
+            System.out.println("      [OK] Répertoire des pages (débordement et conversion de l'ancien format).");
+        }
+        return success;
+    }
+
+    /**
+     * Pool saturé (toutes les frames épinglées ailleurs) : insertion et parcours échouent avec
+     * BufferPoolFullException au lieu d'une NullPointerException, puis refonctionnent une fois les frames rendues.
+     */
+    private static boolean testPoolExhausted(List<ColInfo> cols) {
+        boolean success = true;
+        File testDir = new File("./BinData_HeapFull");
+        if (testDir.exists()) {
+            for (File f : testDir.listFiles()) f.delete();
+            testDir.delete();
+        }
+        DBConfig config = new DBConfig("./BinData_HeapFull", 4096, 4, 4, "LRU");
+        config.bm_pinwaittimeout = 50;
+        DiskManager dm = new DiskManager(config);
+        dm.Init();
+        BufferManager bm = new BufferManager(config, dm);
+
+        Relation rel = new Relation("Saturee", cols, dm, bm, null, config);
+        rel.createHeaderPage();
+        for (int i = 0; i < 10; i++) {
+            rel.InsertRecord(new Record("S" + i, i));
+        }
+
+        // Les 4 frames sont épinglées par d'autres pages
+        List<PageId> others = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            PageId pid = dm.AllocPage();
+            bm.GetPage(pid);
+            others.add(pid);
+        }
+
+        try {
+            rel.InsertRecord(new Record("Refus", -1));
+            System.out.println("      [KO] Pool saturé : InsertRecord a réussi");
+            success = false;
+        } catch (BufferPoolFullException e) {
+            // Attendu
+        }
+        RelationScanner scanner = new RelationScanner(rel);
+        try {
+            scanner.GetNextRecord();
+            System.out.println("      [KO] Pool saturé : le parcours a réussi");
+            success = false;
+        } catch (BufferPoolFullException e) {
+            // Attendu
+        }
+
+        // Frames rendues : la même relation (et le même scanner) fonctionnent de nouveau
+        for (PageId pid : others) {
+            bm.FreePage(pid, false);
+        }
+        rel.InsertRecord(new Record("Accepte", 10));
+        int scanned = 0;
+        while (scanner.GetNextRecord() != null) {
+            scanned++;
+        }
+        scanner.Close();
+        if (scanned != 11 || bm.getPinnedCount() != 0) {
+            System.out.println("      [KO] Après saturation : " + scanned + " records lus (attendu 11), "
+                    + bm.getPinnedCount() + " pages encore épinglées");
+            success = false;
+        }
+
+        bm.Finish();
+        dm.Finish();
+        if (success) {
+            System.out.println("      [OK] Pool saturé : BufferPoolFullException, puis reprise normale.");
+        }
+        return success;
+    }
+}